@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.FilePath;
+import hudson.util.NullStream;
+import hudson.util.StreamTaskListener;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of script files of different sizes.
+ * The files are read through a local {@link FilePath}, so the callable runs in the benchmark JVM without remoting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringContentBenchmark {
+
+    @Param({"1024", "1048576", "16777216"})
+    private int fileSize;
+
+    private File dir;
+
+    private File scriptFile;
+
+    private FilePath rootPath;
+
+    private ScriptTriggerExecutor executor;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = File.createTempFile("scripttrigger", "bench");
+        dir.delete();
+        dir.mkdirs();
+        scriptFile = new File(dir, "script.sh");
+        StringBuilder sb = new StringBuilder(fileSize + 64);
+        while (sb.length() < fileSize) {
+            sb.append("echo 'checking the remote repository state' && test -f /tmp/marker\n");
+        }
+        FileUtils.writeStringToFile(scriptFile, sb.toString());
+
+        rootPath = new FilePath(dir);
+        executor = new ScriptTriggerExecutor(new XTriggerLog(new StreamTaskListener(new NullStream())));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Benchmark
+    public String getStringContent() {
+        return executor.getStringContent(rootPath, scriptFile.getAbsolutePath());
+    }
+}
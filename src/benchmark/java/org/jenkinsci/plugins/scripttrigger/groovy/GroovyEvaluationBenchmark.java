@@ -0,0 +1,110 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import hudson.model.Node;
+import hudson.util.NullStream;
+import hudson.util.StreamTaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of a Groovy trigger script, as a whole and split into shell creation, compilation and evaluation.
+ * The script is evaluated as a system script, in the benchmark JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroovyEvaluationBenchmark {
+
+    private static final String SCRIPT = "def count = 0\n"
+            + "for (int i = 0; i < 100; i++) {\n"
+            + "    if ((\"item-\" + i).endsWith(\"7\")) {\n"
+            + "        count++\n"
+            + "    }\n"
+            + "}\n"
+            + "return count > 5 && '${TRIGGER_FLAG}' == 'on'\n";
+
+    private GroovyScriptTriggerExecutor executor;
+
+    private Map<String, String> envVars;
+
+    private ClassLoader classLoader;
+
+    private GroovyShell shell;
+
+    private Script compiledScript;
+
+    @Setup
+    public void setUp() {
+        XTriggerLog log = new XTriggerLog(new StreamTaskListener(new NullStream()));
+        executor = new GroovyScriptTriggerExecutor(log);
+        envVars = new HashMap<String, String>();
+        envVars.put("TRIGGER_FLAG", "on");
+        classLoader = Thread.currentThread().getContextClassLoader();
+        shell = new GroovyShell(classLoader);
+        compiledScript = shell.parse(SCRIPT.replace("${TRIGGER_FLAG}", "on"));
+        Binding binding = new Binding();
+        binding.setVariable("log", log);
+        compiledScript.setBinding(binding);
+    }
+
+    @Benchmark
+    public boolean evaluateGroovyScript() {
+        return executor.evaluateGroovyScript((Node) null, null, SCRIPT, envVars, true);
+    }
+
+    @Benchmark
+    public GroovyShell createShell() {
+        return new GroovyShell(classLoader);
+    }
+
+    @Benchmark
+    public Script compile() {
+        return shell.parse(SCRIPT);
+    }
+
+    @Benchmark
+    public Object evaluateCompiled() {
+        return compiledScript.run();
+    }
+}
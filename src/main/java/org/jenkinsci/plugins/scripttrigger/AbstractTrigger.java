@@ -26,13 +26,20 @@ import antlr.ANTLRException;
 import hudson.Util;
 import hudson.model.Action;
 import hudson.model.BuildableItem;
+import hudson.model.Job;
 import hudson.model.Node;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Gregory Boissinot
@@ -43,6 +50,36 @@ public abstract class AbstractTrigger extends org.jenkinsci.lib.xtrigger.Abstrac
 
     protected boolean enableConcurrentBuild;
 
+    /**
+     * The {@link System#nanoTime()} of the latest polling schedule, 0 once the polling has started.
+     */
+    private transient volatile long pollScheduledAt;
+
+    private transient volatile PollRecorder currentRecorder;
+
+    /**
+     * The markers printed by the scripts of the latest polling, read from their output instead of the polling log.
+     */
+    private transient volatile String outputCause;
+
+    private transient volatile String outputDescription;
+
+    private transient volatile Integer exitCode;
+
+    /**
+     * The '##param NAME=value' values printed by the scripts of the latest polling, passed to the triggered build.
+     */
+    private transient volatile Map<String, String> outputParameters;
+
+    private transient CircuitBreaker circuitBreaker;
+
+    private transient PollState pollState;
+
+    /**
+     * The failure to load the {@link PollState}, reported by the next polling.
+     */
+    private transient String pollStateFailure;
+
     public AbstractTrigger(String cronTabSpec, boolean labelRestriction, String triggerLabel, boolean enableConcurrentBuild) throws ANTLRException {
         super(cronTabSpec, triggerLabel, enableConcurrentBuild);
         this.labelRestriction = labelRestriction;
@@ -59,10 +96,252 @@ public abstract class AbstractTrigger extends org.jenkinsci.lib.xtrigger.Abstrac
         return labelRestriction;
     }
 
+    /**
+     * A new instance follows a change of the job configuration, which may have fixed the failing script,
+     * so the pollings suspended by the {@link CircuitBreaker} restored from the {@link PollState} resume.
+     */
+    @Override
+    public void start(BuildableItem project, boolean newInstance) {
+        super.start(project, newInstance);
+        if (newInstance) {
+            resetCircuitBreaker();
+        }
+    }
+
     @Override
     protected void start(Node pollingNode, BuildableItem project, boolean newInstance, XTriggerLog log) {
     }
 
+    @Override
+    public void run() {
+        pollScheduledAt = System.nanoTime();
+        super.run();
+    }
+
+    @Override
+    protected final boolean checkIfModified(Node pollingNode, XTriggerLog log) throws ScriptTriggerException {
+        long scheduledAt = pollScheduledAt;
+        pollScheduledAt = 0;
+        CircuitBreaker breaker = getCircuitBreaker();
+        reportPollStateFailure(log);
+        if (!breaker.allowsPolling(System.currentTimeMillis())) {
+            log.info(String.format("The polling is suspended until %s after %d consecutive failures.",
+                    breaker.getOpenUntil(), breaker.getConsecutiveFailures()));
+            return false;
+        }
+        String nodeName = getNodeName(pollingNode);
+        PollRecorder recorder = PollRecorder.start(job.getFullName(), nodeName, scheduledAt);
+        currentRecorder = recorder;
+        outputCause = null;
+        outputDescription = null;
+        exitCode = null;
+        outputParameters = null;
+        long startedAt = System.currentTimeMillis();
+        deleteOutputSpillFile(log);
+        try {
+            boolean modified = checkIfModified(pollingNode, log, recorder);
+            PollOutcome outcome = modified ? PollOutcome.TRIGGERED : PollOutcome.NOT_TRIGGERED;
+            recorder.finish(outcome);
+            breaker.recordSuccess();
+            savePollState(log, outcome, startedAt, breaker);
+            appendHistory(log, startedAt, nodeName, outcome, modified ? (outputCause != null ? outputCause : getDefaultMessageCause()) : null);
+            return modified;
+        } catch (PollSkippedException e) {
+            log.info(e.getMessage() + " Skipping the polling.");
+            recorder.finish(PollOutcome.NOT_TRIGGERED);
+            savePollState(log, PollOutcome.NOT_TRIGGERED, startedAt, breaker);
+            appendHistory(log, startedAt, nodeName, PollOutcome.NOT_TRIGGERED, null);
+            return false;
+        } catch (RuntimeException e) {
+            recorder.finish(PollOutcome.of(e), e);
+            String failure = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            recordFailure(breaker, failure, log);
+            savePollState(log, PollOutcome.of(e), startedAt, breaker);
+            appendHistory(log, startedAt, nodeName, PollOutcome.of(e), failure);
+            throw e;
+        } catch (Error e) {
+            recorder.finish(PollOutcome.ERROR, e);
+            throw e;
+        }
+    }
+
+    private void recordFailure(CircuitBreaker breaker, String failure, XTriggerLog log) {
+        ScriptTriggerConfiguration configuration = ScriptTriggerConfiguration.get();
+        int threshold = configuration == null ? ScriptTriggerConfiguration.DEFAULT_BREAKER_THRESHOLD : configuration.getBreakerThreshold();
+        int initialBackoff = configuration == null ? ScriptTriggerConfiguration.DEFAULT_BREAKER_INITIAL_BACKOFF : configuration.getBreakerInitialBackoff();
+        int maxBackoff = configuration == null ? ScriptTriggerConfiguration.DEFAULT_BREAKER_MAX_BACKOFF : configuration.getBreakerMaxBackoff();
+        breaker.recordFailure(failure, System.currentTimeMillis(), threshold, TimeUnit.MINUTES.toMillis(initialBackoff), TimeUnit.MINUTES.toMillis(maxBackoff));
+        if (breaker.isOpen()) {
+            log.error(String.format("The polling failed %d consecutive times. It is suspended until %s.",
+                    breaker.getConsecutiveFailures(), breaker.getOpenUntil()));
+        }
+    }
+
+    /**
+     * @return the circuit breaker suspending the pollings of the trigger after consecutive failures
+     */
+    public synchronized CircuitBreaker getCircuitBreaker() {
+        if (circuitBreaker == null) {
+            circuitBreaker = getPollState().restoreCircuitBreaker();
+        }
+        return circuitBreaker;
+    }
+
+    private synchronized void resetCircuitBreaker() {
+        PollState state = getPollState();
+        if (!state.resetCircuitBreaker()) {
+            return;
+        }
+        circuitBreaker = null;
+        File stateFile = getStateFile();
+        if (stateFile == null) {
+            return;
+        }
+        try {
+            state.save(stateFile);
+        } catch (IOException ioe) {
+            pollStateFailure = String.format("Failed to save the reset polling state to '%s': %s", stateFile, ioe.getMessage());
+        }
+    }
+
+    /**
+     * @return the compressed file receiving the script output omitted from the polling log, null to drop it.
+     * The scripts of a polling append to it, see {@link CappedOutputStream}.
+     */
+    protected File getOutputSpillFile() {
+        return null;
+    }
+
+    private void deleteOutputSpillFile(XTriggerLog log) {
+        File spillFile = getOutputSpillFile();
+        if (spillFile != null && spillFile.exists() && !spillFile.delete()) {
+            log.error(String.format("Failed to delete the omitted output of the previous polling '%s'.", spillFile));
+        }
+    }
+
+    /**
+     * @return the file keeping the {@link PollState} across restarts, null to keep it in memory only
+     */
+    protected File getStateFile() {
+        return null;
+    }
+
+    /**
+     * @return the state of the trigger, loaded from the state file on the first access
+     */
+    protected synchronized PollState getPollState() {
+        if (pollState == null) {
+            File stateFile = job == null ? null : getStateFile();
+            pollState = new PollState();
+            if (stateFile != null) {
+                try {
+                    pollState = PollState.load(stateFile);
+                } catch (IOException ioe) {
+                    pollStateFailure = String.format("Failed to load the polling state from '%s', starting from an empty state: %s", stateFile, ioe.getMessage());
+                }
+            }
+        }
+        return pollState;
+    }
+
+    private synchronized void reportPollStateFailure(XTriggerLog log) {
+        if (pollStateFailure != null) {
+            log.error(pollStateFailure);
+            pollStateFailure = null;
+        }
+    }
+
+    /**
+     * Writes the state of the trigger to its state file.
+     */
+    protected void savePollState(XTriggerLog log) {
+        File stateFile = getStateFile();
+        if (stateFile == null) {
+            return;
+        }
+        try {
+            getPollState().save(stateFile);
+        } catch (IOException ioe) {
+            log.error("Failed to save the polling state: " + ioe.getMessage());
+        }
+    }
+
+    private void savePollState(XTriggerLog log, PollOutcome outcome, long time, CircuitBreaker breaker) {
+        getPollState().recordPolling(outcome, time, breaker);
+        savePollState(log);
+    }
+
+    private void appendHistory(XTriggerLog log, long startedAt, String nodeName, PollOutcome outcome, String cause) {
+        ScriptTriggerConfiguration configuration = ScriptTriggerConfiguration.get();
+        int retentionDays = configuration == null ? ScriptTriggerConfiguration.DEFAULT_POLL_HISTORY_DAYS : configuration.getPollHistoryDays();
+        if (retentionDays <= 0) {
+            return;
+        }
+        PollHistoryRecord record = new PollHistoryRecord(startedAt, nodeName, System.currentTimeMillis() - startedAt, outcome, exitCode, cause);
+        try {
+            PollHistory.of(job.getRootDir()).append(record, TimeUnit.DAYS.toMillis(retentionDays));
+        } catch (IOException ioe) {
+            log.error("Failed to record the polling in the history: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Evaluates the trigger on the given node.
+     *
+     * @param recorder records the duration of the polling phases
+     * @return true if a build has to be scheduled
+     */
+    protected abstract boolean checkIfModified(Node pollingNode, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException;
+
+    protected static String getNodeName(Node node) {
+        if (node == null) {
+            return "unknown";
+        }
+        String nodeName = node.getNodeName();
+        return (nodeName == null || nodeName.length() == 0) ? "master" : nodeName;
+    }
+
+    /**
+     * @return the recorder of the latest polling
+     */
+    protected PollRecorder getCurrentRecorder() {
+        PollRecorder recorder = currentRecorder;
+        return recorder == null ? PollRecorder.NONE : recorder;
+    }
+
+    /**
+     * Keeps the markers printed by a script of the current polling.
+     * The first cause and the latest description win, as when they are read from the polling log.
+     */
+    protected void recordOutputMarkers(String cause, String description) {
+        if (outputCause == null) {
+            outputCause = cause;
+        }
+        if (description != null) {
+            outputDescription = description;
+        }
+    }
+
+    /**
+     * Keeps the parameters printed by a script of the current polling whose result triggers the build,
+     * the parameters of a script not triggering it are ignored. The values of the later scripts win.
+     */
+    protected void recordOutputParameters(Map<String, String> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return;
+        }
+        Map<String, String> merged = outputParameters == null ? new LinkedHashMap<String, String>() : new LinkedHashMap<String, String>(outputParameters);
+        merged.putAll(parameters);
+        outputParameters = merged;
+    }
+
+    /**
+     * Keeps the exit code of a script of the current polling, stored in the {@link PollHistory}.
+     */
+    protected void recordExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
     @Override
     protected String getName() {
         return "ScriptTrigger";
@@ -70,6 +349,10 @@ public abstract class AbstractTrigger extends org.jenkinsci.lib.xtrigger.Abstrac
 
     @Override
     protected String getCause() {
+        if (outputCause != null) {
+            return outputCause;
+        }
+        long start = System.nanoTime();
         try {
             String scriptContent = Util.loadFile(getLogFile());
             String cause = extractRootCause(scriptContent);
@@ -79,29 +362,43 @@ public abstract class AbstractTrigger extends org.jenkinsci.lib.xtrigger.Abstrac
             return cause;
         } catch (IOException e) {
             return getDefaultMessageCause();
+        } finally {
+            getCurrentRecorder().record(PollPhase.MARKER_EXTRACTION, start);
         }
     }
 
     protected abstract String getDefaultMessageCause();
 
-    private String extractRootCause(String content) {
+    static String extractRootCause(String content) {
         return StringUtils.substringBetween(content, "<cause>", "</cause>");
     }
 
     @Override
     protected Action[] getScheduledActions(Node pollingNode, XTriggerLog log) {
-        String scriptContent;
-        try {
-            scriptContent = Util.loadFile(getLogFile());
-        } catch (IOException e) {
-            return new Action[0];
+        long start = System.nanoTime();
+        String description = outputDescription;
+        if (description == null) {
+            try {
+                description = extractDescription(Util.loadFile(getLogFile()));
+            } catch (IOException e) {
+                return new Action[0];
+            }
         }
 
         List<Action> actionList = new ArrayList<Action>();
-        String description = extractDescription(scriptContent);
         if (description != null) {
             actionList.add(new ScriptTriggerRunAction(description));
         }
+        Map<String, String> parameters = outputParameters;
+        if (parameters != null) {
+            ParametersDefinitionProperty paramDefProp = ((Job<?, ?>) job).getProperty(ParametersDefinitionProperty.class);
+            if (paramDefProp == null) {
+                log.info("The job isn't parameterized. The parameters printed by the script are ignored.");
+            } else {
+                actionList.add(new ParametersAction(TriggerParameters.toParameterValues(paramDefProp, parameters)));
+            }
+        }
+        getCurrentRecorder().record(PollPhase.MARKER_EXTRACTION, start);
         return actionList.toArray(new Action[actionList.size()]);
     }
 
@@ -111,7 +408,7 @@ public abstract class AbstractTrigger extends org.jenkinsci.lib.xtrigger.Abstrac
      * @param content the script log trigger plugin current log
      * @return the latest description found or null if any
      */
-    private String extractDescription(String content) {
+    static String extractDescription(String content) {
         String [] des =  StringUtils.substringsBetween(content, "<description>", "</description>");
         if (des != null && des.length >=1 ) {
             return des[des.length - 1];
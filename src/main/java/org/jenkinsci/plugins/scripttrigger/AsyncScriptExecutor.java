@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.security.ACL;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the script evaluations requested through the asynchronous methods of {@link ScriptTriggerExecutor}
+ * and its subclasses, so a caller can evaluate many scripts on many nodes at once.
+ * The pool and its queue are bounded: a submission beyond them is rejected instead of queued without limit.
+ * The evaluations run with the authentication of the caller.
+ */
+public final class AsyncScriptExecutor {
+
+    private static final int POOL_SIZE = Integer.getInteger(AsyncScriptExecutor.class.getName() + ".poolSize", 16);
+
+    private static final int QUEUE_SIZE = Integer.getInteger(AsyncScriptExecutor.class.getName() + ".queueSize", 1000);
+
+    private static final AsyncScriptExecutor INSTANCE = new AsyncScriptExecutor();
+
+    private final ThreadPoolExecutor executor;
+
+    private AsyncScriptExecutor() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new AsyncThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static AsyncScriptExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues an evaluation. Cancelling the returned future with interruption interrupts the evaluation,
+     * which aborts the remote call and the script process on the node.
+     *
+     * @throws ScriptTriggerException if the pool and its queue are full
+     */
+    public <T> Future<T> submit(final Callable<T> evaluation) throws ScriptTriggerException {
+        final Authentication authentication = Jenkins.getAuthentication();
+        try {
+            return executor.submit(new Callable<T>() {
+                public T call() throws Exception {
+                    SecurityContext previousContext = ACL.impersonate(authentication);
+                    try {
+                        return evaluation.call();
+                    } finally {
+                        SecurityContextHolder.setContext(previousContext);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            throw new ScriptTriggerException(String.format("Too many pending script evaluations, at most %d running and %d queued.", POOL_SIZE, QUEUE_SIZE), ree);
+        }
+    }
+
+    private static final class AsyncThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ScriptTrigger asynchronous evaluation " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
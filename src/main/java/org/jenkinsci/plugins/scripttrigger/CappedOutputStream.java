@@ -0,0 +1,215 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Forwards the head of a script output to the polling log and keeps its tail in memory,
+ * in a buffer grown up to the tail size once the output goes past the head.
+ * The bytes between the head and the tail are compressed into a side file, up to a limit,
+ * and the tail is written to the log when the stream is closed.
+ * Each stream appends its own gzip member to the side file, so the scripts of a polling share it;
+ * the trigger deletes the file at the start of each polling.
+ * The polling log itself is never closed.
+ */
+public class CappedOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    private final long headSize;
+
+    private static final int INITIAL_TAIL_CAPACITY = 4096;
+
+    private final int tailSize;
+
+    private byte[] tail = new byte[0];
+
+    private final File spillFile;
+
+    private final long spillLimit;
+
+    private long headWritten;
+
+    private int tailStart;
+
+    private int tailCount;
+
+    private OutputStream spill;
+
+    private long spilled;
+
+    private long omitted;
+
+    private boolean closed;
+
+    /**
+     * @param headSize   the number of bytes forwarded as is to the log, a negative value for no limit
+     * @param tailSize   the number of bytes kept in memory and written to the log on close
+     * @param spillFile  the compressed file receiving the bytes between the head and the tail, null to drop them
+     * @param spillLimit the maximum number of uncompressed bytes written to the spill file by this stream
+     */
+    public CappedOutputStream(OutputStream out, long headSize, int tailSize, File spillFile, long spillLimit) {
+        this.out = out;
+        this.headSize = headSize < 0 ? Long.MAX_VALUE : headSize;
+        this.tailSize = Math.max(0, tailSize);
+        this.spillFile = spillFile;
+        this.spillLimit = spillLimit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The output is closed.");
+        }
+        if (headWritten < headSize) {
+            int head = (int) Math.min(len, headSize - headWritten);
+            out.write(b, off, head);
+            headWritten += head;
+            off += head;
+            len -= head;
+        }
+        if (len > 0) {
+            writeTail(b, off, len);
+        }
+    }
+
+    private void writeTail(byte[] b, int off, int len) throws IOException {
+        if (tailCount + len > tail.length && tail.length < tailSize) {
+            growTail(tailCount + len);
+        }
+        int overflow = tailCount + len - tail.length;
+        if (overflow > 0) {
+            int fromTail = Math.min(overflow, tailCount);
+            spillTail(fromTail);
+            int fromInput = overflow - fromTail;
+            spill(b, off, fromInput);
+            off += fromInput;
+            len -= fromInput;
+        }
+        if (len == 0) {
+            return;
+        }
+        int end = (tailStart + tailCount) % tail.length;
+        int first = Math.min(len, tail.length - end);
+        System.arraycopy(b, off, tail, end, first);
+        System.arraycopy(b, off + first, tail, 0, len - first);
+        tailCount += len;
+    }
+
+    private void growTail(int needed) {
+        int capacity = (int) Math.min(tailSize, Math.max(needed, Math.max(INITIAL_TAIL_CAPACITY, 2L * tail.length)));
+        byte[] grown = new byte[capacity];
+        int first = Math.min(tailCount, tail.length - tailStart);
+        System.arraycopy(tail, tailStart, grown, 0, first);
+        System.arraycopy(tail, 0, grown, first, tailCount - first);
+        tail = grown;
+        tailStart = 0;
+    }
+
+    private void spillTail(int count) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int first = Math.min(count, tail.length - tailStart);
+        spill(tail, tailStart, first);
+        spill(tail, 0, count - first);
+        tailStart = (tailStart + count) % tail.length;
+        tailCount -= count;
+    }
+
+    private void spill(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        omitted += len;
+        if (spillFile == null || spilled >= spillLimit) {
+            return;
+        }
+        if (spill == null) {
+            spill = new GZIPOutputStream(new FileOutputStream(spillFile, true));
+        }
+        int count = (int) Math.min(len, spillLimit - spilled);
+        spill.write(b, off, count);
+        spilled += count;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the tail to the log, preceded by a notice of the omitted bytes if any.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (spill != null) {
+                spill.close();
+            }
+        } finally {
+            writeTailToLog();
+        }
+    }
+
+    private void writeTailToLog() throws IOException {
+        if (omitted > 0) {
+            PrintStream notice = new PrintStream(out, true);
+            notice.println();
+            if (spilled == 0) {
+                notice.println(String.format("[... %d bytes of output omitted ...]", omitted));
+            } else if (spilled < omitted) {
+                notice.println(String.format("[... %d bytes of output omitted, the first %d of them are in '%s' ...]", omitted, spilled, spillFile.getPath()));
+            } else {
+                notice.println(String.format("[... %d bytes of output omitted, see '%s' ...]", omitted, spillFile.getPath()));
+            }
+        }
+        int first = Math.min(tailCount, tail.length - tailStart);
+        out.write(tail, tailStart, first);
+        out.write(tail, 0, tailCount - first);
+        tailCount = 0;
+        out.flush();
+    }
+
+    /**
+     * @return the number of bytes not written to the log
+     */
+    public synchronized long getOmittedBytes() {
+        return omitted;
+    }
+}
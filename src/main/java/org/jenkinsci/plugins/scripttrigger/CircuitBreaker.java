@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.util.Date;
+
+/**
+ * Suspends the pollings of a trigger after consecutive failures.
+ * <p/>
+ * Once the failure threshold is reached the breaker opens for a backoff delay, doubled by each new failure
+ * up to a maximum. The first polling after the delay is a trial: a success closes the breaker,
+ * a failure opens it again for a longer delay.
+ */
+public class CircuitBreaker {
+
+    private int consecutiveFailures;
+
+    private long openUntil;
+
+    private String lastFailure;
+
+    /**
+     * @return true if a polling may run at the given time
+     */
+    public synchronized boolean allowsPolling(long now) {
+        return now >= openUntil;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openUntil = 0;
+        lastFailure = null;
+    }
+
+    /**
+     * @param threshold      the number of consecutive failures opening the breaker, not positive to never open it
+     * @param initialBackoff the delay in milliseconds for which the breaker opens at the threshold
+     * @param maxBackoff     the maximum delay in milliseconds
+     */
+    public synchronized void recordFailure(String failure, long now, int threshold, long initialBackoff, long maxBackoff) {
+        consecutiveFailures++;
+        lastFailure = failure;
+        if (threshold <= 0 || consecutiveFailures < threshold) {
+            return;
+        }
+        int doublings = Math.min(consecutiveFailures - threshold, 30);
+        long backoff = Math.min(maxBackoff, initialBackoff << doublings);
+        if (backoff < 0) {
+            backoff = maxBackoff;
+        }
+        openUntil = now + backoff;
+    }
+
+    public synchronized boolean isOpen() {
+        return System.currentTimeMillis() < openUntil;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the date of the next allowed polling, null if the breaker is closed
+     */
+    public synchronized Date getOpenUntil() {
+        return isOpen() ? new Date(openUntil) : null;
+    }
+
+    /**
+     * @return the end of the suspension in milliseconds, in the past if the breaker is closed
+     */
+    synchronized long getOpenUntilMillis() {
+        return openUntil;
+    }
+
+    /**
+     * Restores the state recorded by a {@link PollState}.
+     */
+    synchronized void restore(int consecutiveFailures, long openUntil, String lastFailure) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.openUntil = openUntil;
+        this.lastFailure = lastFailure;
+    }
+
+    /**
+     * @return the message of the latest failure, null if the latest polling succeeded
+     */
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable set of exit codes parsed from a specification such as '0,2,10-20'.
+ * The codes are stored as sorted and merged ranges.
+ */
+public final class ExitCodeSet implements Serializable {
+
+    private static final Pattern RANGE = Pattern.compile("(-?\\d+)(?:\\s*-\\s*(-?\\d+))?");
+
+    public static final ExitCodeSet DEFAULT = new ExitCodeSet(new int[]{0, 0});
+
+    /**
+     * Pairs of inclusive lower and upper bounds, sorted and non overlapping.
+     */
+    private final int[] bounds;
+
+    private ExitCodeSet(int[] bounds) {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Parses an exit code specification.
+     *
+     * @param spec a comma separated list of exit codes and ranges, the default exit code '0' if null
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static ExitCodeSet parse(String spec) throws IllegalArgumentException {
+        if (spec == null || spec.trim().length() == 0) {
+            return DEFAULT;
+        }
+
+        List<int[]> ranges = new ArrayList<int[]>();
+        for (String token : spec.split(",")) {
+            token = token.trim();
+            Matcher matcher = RANGE.matcher(token);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException(String.format("'%s' is neither an exit code nor a range of exit codes.", token));
+            }
+            try {
+                int lower = Integer.parseInt(matcher.group(1));
+                int upper = matcher.group(2) == null ? lower : Integer.parseInt(matcher.group(2));
+                if (upper < lower) {
+                    throw new IllegalArgumentException(String.format("The range '%s' is empty.", token));
+                }
+                ranges.add(new int[]{lower, upper});
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException(String.format("'%s' is out of the exit code bounds.", token));
+            }
+        }
+
+        int[][] sortedRanges = ranges.toArray(new int[ranges.size()][]);
+        Arrays.sort(sortedRanges, new Comparator<int[]>() {
+            public int compare(int[] r1, int[] r2) {
+                return r1[0] < r2[0] ? -1 : (r1[0] == r2[0] ? 0 : 1);
+            }
+        });
+
+        int[] bounds = new int[sortedRanges.length * 2];
+        int size = 0;
+        for (int[] range : sortedRanges) {
+            if (size > 0 && (long) range[0] <= (long) bounds[size - 1] + 1) {
+                bounds[size - 1] = Math.max(bounds[size - 1], range[1]);
+            } else {
+                bounds[size++] = range[0];
+                bounds[size++] = range[1];
+            }
+        }
+        return new ExitCodeSet(Arrays.copyOf(bounds, size));
+    }
+
+    public boolean contains(int exitCode) {
+        int low = 0;
+        int high = bounds.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (exitCode < bounds[2 * mid]) {
+                high = mid - 1;
+            } else if (exitCode > bounds[2 * mid + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (sb.length() != 0) {
+                sb.append(',');
+            }
+            sb.append(bounds[i]);
+            if (bounds[i + 1] != bounds[i]) {
+                sb.append('-').append(bounds[i + 1]);
+            }
+        }
+        return sb.toString();
+    }
+}
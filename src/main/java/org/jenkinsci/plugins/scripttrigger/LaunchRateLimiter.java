@@ -0,0 +1,188 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.slaves.ComputerListener;
+import jenkins.model.Jenkins;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits the launches of the polling scripts on the nodes with token buckets: one per node and one for all
+ * the nodes, configured in {@link ScriptTriggerConfiguration}. A launch waits until both buckets have a token,
+ * so the pollings scheduled at the same time are spread over time instead of forking many processes at once.
+ * A launch which would wait longer than {@link #MAX_WAIT_SECONDS} is rejected, and its polling skipped,
+ * rather than holding the polling thread.
+ */
+public final class LaunchRateLimiter {
+
+    static final int MAX_WAIT_SECONDS = Integer.getInteger(LaunchRateLimiter.class.getName() + ".maxWaitSeconds", 60);
+
+    private static final LaunchRateLimiter INSTANCE = new LaunchRateLimiter();
+
+    private final TokenBucket globalBucket = new TokenBucket();
+
+    private final ConcurrentMap<String, TokenBucket> nodeBuckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    private LaunchRateLimiter() {
+    }
+
+    public static LaunchRateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until a launch is admitted on the given node.
+     *
+     * @return the waited time in nanoseconds
+     * @throws PollSkippedException if the launch would wait longer than {@link #MAX_WAIT_SECONDS}
+     */
+    public long acquire(String nodeName) throws InterruptedException, PollSkippedException {
+        ScriptTriggerConfiguration configuration = ScriptTriggerConfiguration.get();
+        if (configuration == null) {
+            return 0;
+        }
+        long wait = reserve(getNodeBucket(nodeName), configuration.getNodeLaunchRate() / 60.0, configuration.getNodeLaunchBurst(),
+                globalBucket, configuration.getGlobalLaunchRate() / 60.0, configuration.getGlobalLaunchBurst(),
+                TimeUnit.SECONDS.toNanos(MAX_WAIT_SECONDS));
+        if (wait < 0) {
+            throw new PollSkippedException(String.format("The launch rate limit of the node '%s' would delay the script by more than %d seconds.",
+                    nodeName, MAX_WAIT_SECONDS));
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return wait;
+    }
+
+    /**
+     * Takes a token of both buckets at the time both have one, the binding bucket deciding the wait, so the other
+     * bucket isn't charged for the time waited on the binding one.
+     *
+     * @return the nanoseconds to wait before the launch, -1 if it is longer than the given maximum and nothing is taken
+     */
+    static long reserve(TokenBucket nodeBucket, double nodeRate, int nodeBurst,
+                        TokenBucket globalBucket, double globalRate, int globalBurst, long maxWait) {
+        synchronized (LaunchRateLimiter.class) {
+            long now = System.nanoTime();
+            long launchAt = Math.max(nodeBucket.availableAt(now, nodeRate, nodeBurst), globalBucket.availableAt(now, globalRate, globalBurst));
+            long wait = launchAt - now;
+            if (wait > maxWait) {
+                return -1;
+            }
+            nodeBucket.take(launchAt, nodeRate, nodeBurst);
+            globalBucket.take(launchAt, globalRate, globalBurst);
+            return wait;
+        }
+    }
+
+    TokenBucket getNodeBucket(String nodeName) {
+        TokenBucket bucket = nodeBuckets.get(nodeName);
+        if (bucket == null) {
+            TokenBucket newBucket = new TokenBucket();
+            bucket = nodeBuckets.putIfAbsent(nodeName, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Drops the buckets of the nodes which no longer exist, such as the deleted or renamed nodes.
+     */
+    void retainNodes(Set<String> nodeNames) {
+        nodeBuckets.keySet().retainAll(nodeNames);
+    }
+
+    /**
+     * A bucket refilled with rate tokens per second up to the burst size, kept as the theoretical time of the next
+     * launch: each launch pushes it by one refill interval, from the launch time when the bucket is idle. A launch is
+     * admitted when this time is at most the burst minus one intervals ahead, so a launch reserved in the future
+     * doesn't hold back the launches the remaining tokens allow.
+     */
+    static final class TokenBucket {
+
+        private boolean started;
+
+        private long nextLaunchAt;
+
+        /**
+         * @param rate  the tokens added per second, not positive for no limit
+         * @param burst the maximum number of tokens
+         * @return the {@link System#nanoTime()} from which a token is available, now or later
+         */
+        synchronized long availableAt(long now, double rate, int burst) {
+            if (rate <= 0 || !started) {
+                return now;
+            }
+            return Math.max(now, nextLaunchAt - (Math.max(1, burst) - 1) * interval(rate));
+        }
+
+        /**
+         * Takes a token at the given time, which must not be before {@link #availableAt}.
+         */
+        synchronized void take(long at, double rate, int burst) {
+            if (rate <= 0) {
+                return;
+            }
+            if (!started) {
+                nextLaunchAt = at;
+                started = true;
+            }
+            nextLaunchAt = Math.max(nextLaunchAt, at) + interval(rate);
+        }
+
+        private static long interval(double rate) {
+            return (long) Math.ceil(TimeUnit.SECONDS.toNanos(1) / rate);
+        }
+    }
+
+    /**
+     * Drops the buckets of the removed nodes when the nodes are reconfigured.
+     */
+    @Extension
+    public static final class NodeBucketsCleaner extends ComputerListener {
+
+        @Override
+        public void onConfigurationChange() {
+            Jenkins jenkins = Jenkins.getInstance();
+            if (jenkins == null) {
+                return;
+            }
+            Set<String> nodeNames = new HashSet<String>();
+            //The name of the master in the NodeExecutionContext
+            nodeNames.add("master");
+            for (Node node : jenkins.getNodes()) {
+                nodeNames.add(node.getNodeName());
+            }
+            getInstance().retainNodes(nodeNames);
+        }
+    }
+}
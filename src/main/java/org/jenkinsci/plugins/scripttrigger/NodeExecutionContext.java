@@ -0,0 +1,129 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.FilePath;
+import hudson.model.Node;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+
+/**
+ * The node of a polling, resolved once per polling: its root path, channel and {@link NodePlatform}.
+ * A context is only created for an online node, so the executor steps don't have to check it again.
+ */
+public class NodeExecutionContext {
+
+    private final Node node;
+
+    private final FilePath rootPath;
+
+    private final VirtualChannel channel;
+
+    private NodePlatform platform;
+
+    private NodeExecutionContext(Node node, FilePath rootPath) {
+        this.node = node;
+        this.rootPath = rootPath;
+        this.channel = rootPath.getChannel();
+    }
+
+    /**
+     * @return the context of the given node, or null if the node is offline
+     */
+    public static NodeExecutionContext of(Node node) {
+        if (node == null) {
+            return null;
+        }
+        FilePath rootPath = node.getRootPath();
+        if (rootPath == null) {
+            return null;
+        }
+        return new NodeExecutionContext(node, rootPath);
+    }
+
+    /**
+     * @return the context of the given node
+     * @throws ScriptTriggerException if the node is offline
+     */
+    public static NodeExecutionContext require(Node node) throws ScriptTriggerException {
+        NodeExecutionContext context = of(node);
+        if (context == null) {
+            throw new ScriptTriggerException("The node is offline.");
+        }
+        return context;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * @return the name of the node, 'master' for the master
+     */
+    public String getNodeName() {
+        String nodeName = node.getNodeName();
+        return (nodeName == null || nodeName.length() == 0) ? "master" : nodeName;
+    }
+
+    public FilePath getRootPath() {
+        return rootPath;
+    }
+
+    public VirtualChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the platform of the node, cached while the node stays connected
+     */
+    public synchronized NodePlatform getPlatform() throws ScriptTriggerException {
+        if (platform == null) {
+            try {
+                platform = NodePlatform.of(channel);
+            } catch (IOException ioe) {
+                throw new ScriptTriggerException(ioe);
+            } catch (InterruptedException ie) {
+                throw new ScriptTriggerException(ie);
+            }
+        }
+        return platform;
+    }
+
+    /**
+     * @return true if the node runs a Unix like system
+     */
+    public boolean isUnix() throws ScriptTriggerException {
+        return getPlatform().isUnix();
+    }
+
+    /**
+     * Waits for the output sent by the node to the master so far to be written.
+     */
+    public void syncIO() throws InterruptedException {
+        if (channel instanceof Channel) {
+            ((Channel) channel).syncLocalIO();
+        }
+    }
+}
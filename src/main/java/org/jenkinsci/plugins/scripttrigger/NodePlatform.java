@@ -0,0 +1,173 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.remoting.Callable;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The platform facts of a node, which don't change while the node stays connected.
+ * They are cached per channel, filled when the node connects by {@link NodePlatformListener}
+ * or by the first polling on the node, and dropped when the channel is closed.
+ */
+public class NodePlatform implements Serializable {
+
+    private static final Map<VirtualChannel, NodePlatform> PLATFORMS = Collections.synchronizedMap(new WeakHashMap<VirtualChannel, NodePlatform>());
+
+    private final boolean unix;
+
+    private final String osName;
+
+    private final String defaultShell;
+
+    private final String tmpDir;
+
+    private final String charset;
+
+    private final String niceCommand;
+
+    private final String ioniceCommand;
+
+    private final String scopeCommand;
+
+    private NodePlatform(boolean unix, String osName, String defaultShell, String tmpDir, String charset,
+                         String niceCommand, String ioniceCommand, String scopeCommand) {
+        this.unix = unix;
+        this.osName = osName;
+        this.defaultShell = defaultShell;
+        this.tmpDir = tmpDir;
+        this.charset = charset;
+        this.niceCommand = niceCommand;
+        this.ioniceCommand = ioniceCommand;
+        this.scopeCommand = scopeCommand;
+    }
+
+    /**
+     * @return the platform of the node on the other side of the given channel, asked to the node if it isn't cached
+     */
+    public static NodePlatform of(VirtualChannel channel) throws IOException, InterruptedException {
+        NodePlatform platform = PLATFORMS.get(channel);
+        if (platform == null) {
+            platform = channel.call(new GetPlatform());
+            if (PLATFORMS.put(channel, platform) == null && channel instanceof Channel) {
+                // The computer no longer exposes its channel once it is offline, so the entry is dropped by the channel itself
+                ((Channel) channel).addListener(new ForgetOnClose());
+            }
+        }
+        return platform;
+    }
+
+    static void forget(VirtualChannel channel) {
+        PLATFORMS.remove(channel);
+    }
+
+    private static final class ForgetOnClose extends Channel.Listener {
+        @Override
+        public void onClosed(Channel channel, IOException cause) {
+            forget(channel);
+        }
+    }
+
+    public boolean isUnix() {
+        return unix;
+    }
+
+    public String getOsName() {
+        return osName;
+    }
+
+    /**
+     * @return the shell used when none is configured, as chosen by {@link hudson.tasks.Shell}
+     */
+    public String getDefaultShell() {
+        return defaultShell;
+    }
+
+    public String getTmpDir() {
+        return tmpDir;
+    }
+
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the path of the nice command on the node, or null if it isn't available
+     */
+    public String getNiceCommand() {
+        return niceCommand;
+    }
+
+    /**
+     * @return the path of the ionice command on the node, or null if it isn't available
+     */
+    public String getIoniceCommand() {
+        return ioniceCommand;
+    }
+
+    /**
+     * @return the path of systemd-run if the node can run processes in a transient cgroup scope of the user, or null
+     */
+    public String getScopeCommand() {
+        return scopeCommand;
+    }
+
+    private static final class GetPlatform implements Callable<NodePlatform, IOException> {
+        public NodePlatform call() throws IOException {
+            boolean unix = File.pathSeparatorChar == ':';
+            String defaultShell = unix ? (new File("/bin/sh").exists() ? "/bin/sh" : "sh") : null;
+            String niceCommand = unix ? findCommand("nice") : null;
+            String ioniceCommand = unix ? findCommand("ionice") : null;
+            String scopeCommand = null;
+            if (unix && System.getenv("XDG_RUNTIME_DIR") != null && new File("/sys/fs/cgroup/cgroup.controllers").exists()) {
+                scopeCommand = findCommand("systemd-run");
+            }
+            return new NodePlatform(unix, System.getProperty("os.name"), defaultShell,
+                    System.getProperty("java.io.tmpdir"), Charset.defaultCharset().name(),
+                    niceCommand, ioniceCommand, scopeCommand);
+        }
+
+        private static String findCommand(String name) {
+            String path = System.getenv("PATH");
+            if (path == null) {
+                return null;
+            }
+            for (String dir : path.split(File.pathSeparator)) {
+                File command = new File(dir, name);
+                if (dir.length() != 0 && command.isFile() && command.canExecute()) {
+                    return command.getAbsolutePath();
+                }
+            }
+            return null;
+        }
+    }
+}
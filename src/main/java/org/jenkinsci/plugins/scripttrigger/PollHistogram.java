@@ -0,0 +1,157 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram with fixed buckets, safe for concurrent updates.
+ */
+@ExportedBean(defaultVisibility = 2)
+public class PollHistogram {
+
+    /**
+     * Upper bounds in milliseconds of the buckets. The last bucket is unbounded.
+     */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000};
+
+    private final PollPhase phase;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sumMillis = new AtomicLong();
+
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public PollHistogram(PollPhase phase) {
+        this.phase = phase;
+    }
+
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+        buckets.incrementAndGet(bucketOf(millis));
+        count.incrementAndGet();
+        sumMillis.addAndGet(millis);
+        long max;
+        while ((max = maxMillis.get()) < millis && !maxMillis.compareAndSet(max, millis)) {
+            //retry
+        }
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (millis <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    public PollPhase getPhase() {
+        return phase;
+    }
+
+    @Exported(name = "phase")
+    public String getPhaseName() {
+        return phase.name();
+    }
+
+    @Exported
+    public long getCount() {
+        return count.get();
+    }
+
+    @Exported
+    public long getMeanMillis() {
+        long c = count.get();
+        return c == 0 ? 0 : sumMillis.get() / c;
+    }
+
+    @Exported
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    @Exported
+    public long getP50Millis() {
+        return getPercentileMillis(0.50);
+    }
+
+    @Exported
+    public long getP90Millis() {
+        return getPercentileMillis(0.90);
+    }
+
+    @Exported
+    public long getP99Millis() {
+        return getPercentileMillis(0.99);
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the given percentile, capped by the maximum recorded value
+     */
+    public long getPercentileMillis(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i < BUCKET_BOUNDS.length ? Math.min(BUCKET_BOUNDS[i], getMaxMillis()) : getMaxMillis();
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return the number of recorded values per bucket, the last bucket being unbounded
+     */
+    @Exported
+    public long[] getBuckets() {
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    @Exported
+    public long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS.clone();
+    }
+}
@@ -0,0 +1,501 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The append-only history of the pollings of a job, stored in the 'scriptTrigger-history' directory of the job.
+ * <p/>
+ * The 'records' file holds a header followed by fixed size records in time order, so a time range is found by a
+ * binary search in the file. The node names and causes are stored once in the 'strings' file
+ * and referenced by their offset. The records older than the retention of {@link ScriptTriggerConfiguration}
+ * are pruned by rewriting both files.
+ * <p/>
+ * The files are read without memory mapping, so they can be replaced on every platform. A prune writes the new
+ * files next to the current ones, then creates a commit marker before replacing them: the first access to the
+ * history after a crash completes a committed prune or drops an uncommitted one, and truncates the record
+ * or the string partially written by an interrupted append.
+ */
+public class PollHistory {
+
+    private static final int MAGIC = 0x53545048;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * timestamp (8), duration (4), outcome (1), flags (1), reserved (2), exit code (4), node (4), cause (4), reserved (4)
+     */
+    static final int RECORD_SIZE = 32;
+
+    private static final int FLAG_EXIT_CODE = 1;
+
+    private static final int NO_STRING = -1;
+
+    private static final int MAX_CAUSE_LENGTH = 1024;
+
+    /**
+     * The records read at once by {@link #read(long, long)}.
+     */
+    private static final int READ_BATCH = 256;
+
+    /**
+     * Records older than the retention are pruned once they are older than the retention plus this delay,
+     * so the files are not rewritten by every polling.
+     */
+    private static final long PRUNE_DELAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final String NEW_SUFFIX = ".new";
+
+    private static final String PRUNE_COMMIT = "prune.commit";
+
+    private static final ConcurrentMap<String, PollHistory> HISTORIES = new ConcurrentHashMap<String, PollHistory>();
+
+    private final File recordsFile;
+
+    private final File stringsFile;
+
+    /**
+     * True once the files left by an interrupted append or prune have been repaired.
+     */
+    private boolean recovered;
+
+    /**
+     * The offsets of the strings already stored, loaded on the first append.
+     */
+    private Map<String, Integer> stringOffsets;
+
+    private long firstTimestamp = -1;
+
+    private long lastTimestamp = -1;
+
+    private PollHistory(File recordsFile, File stringsFile) {
+        this.recordsFile = recordsFile;
+        this.stringsFile = stringsFile;
+    }
+
+    /**
+     * @return the history of the job stored in the given directory
+     */
+    public static PollHistory of(File jobRootDir) {
+        File directory = getDirectory(jobRootDir);
+        String key = directory.getAbsolutePath();
+        PollHistory history = HISTORIES.get(key);
+        if (history == null) {
+            PollHistory newHistory = new PollHistory(new File(directory, "records"), new File(directory, "strings"));
+            history = HISTORIES.putIfAbsent(key, newHistory);
+            if (history == null) {
+                history = newHistory;
+            }
+        }
+        return history;
+    }
+
+    private static File getDirectory(File jobRootDir) {
+        return new File(jobRootDir, "scriptTrigger-history");
+    }
+
+    /**
+     * Forgets the histories of the jobs stored in the given directory, such as a deleted job or folder.
+     * The files are not deleted.
+     */
+    public static void forget(File directory) {
+        String prefix = directory.getAbsolutePath() + File.separator;
+        for (Iterator<String> it = HISTORIES.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets the histories whose job directory doesn't exist anymore, such as the jobs renamed or moved.
+     */
+    public static void forgetMissing() {
+        for (Iterator<String> it = HISTORIES.keySet().iterator(); it.hasNext(); ) {
+            if (!new File(it.next()).getParentFile().exists()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Appends a polling, then prunes the history if its oldest polling has expired.
+     * A polling started before the latest appended one, which ended first, is stored with the time of the latest one
+     * so the records stay in time order.
+     *
+     * @param retentionMillis the age of the pollings to keep, not positive to keep them all
+     */
+    public synchronized void append(PollHistoryRecord record, long retentionMillis) throws IOException {
+        recover();
+        if (stringOffsets == null) {
+            stringOffsets = loadStrings();
+        }
+        int nodeRef = storeString(record.getNodeName());
+        String cause = record.getCause();
+        if (cause != null && cause.length() > MAX_CAUSE_LENGTH) {
+            cause = cause.substring(0, MAX_CAUSE_LENGTH);
+        }
+        int causeRef = storeString(cause);
+        long timestamp = Math.max(record.getTimestamp(), lastTimestamp);
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(timestamp);
+        buffer.putInt((int) Math.min(Integer.MAX_VALUE, record.getDurationMillis()));
+        buffer.put((byte) record.getOutcome().ordinal());
+        buffer.put((byte) (record.getExitCode() != null ? FLAG_EXIT_CODE : 0));
+        buffer.putShort((short) 0);
+        buffer.putInt(record.getExitCode() != null ? record.getExitCode() : 0);
+        buffer.putInt(nodeRef);
+        buffer.putInt(causeRef);
+        buffer.putInt(0);
+        buffer.flip();
+
+        RandomAccessFile file = openRecords();
+        try {
+            FileChannel channel = file.getChannel();
+            channel.write(buffer, channel.size());
+            if (firstTimestamp < 0) {
+                firstTimestamp = channel.size() > HEADER_SIZE + RECORD_SIZE ? readTimestamp(channel, 0) : timestamp;
+            }
+        } finally {
+            file.close();
+        }
+        lastTimestamp = timestamp;
+
+        if (retentionMillis > 0 && firstTimestamp < timestamp - retentionMillis - PRUNE_DELAY) {
+            prune(timestamp - retentionMillis);
+        }
+    }
+
+    /**
+     * @return the pollings started between the given times, inclusive, in time order
+     */
+    public synchronized List<PollHistoryRecord> read(long from, long to) throws IOException {
+        recover();
+        List<PollHistoryRecord> records = new ArrayList<PollHistoryRecord>();
+        if (!recordsFile.exists()) {
+            return records;
+        }
+        RandomAccessFile file = new RandomAccessFile(recordsFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long count = getRecordCount(channel);
+            if (count <= 0) {
+                return records;
+            }
+            ByteBuffer strings = readStrings();
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BATCH * RECORD_SIZE);
+            for (long index = lowerBound(channel, count, from); index < count; ) {
+                int batch = (int) Math.min(READ_BATCH, count - index);
+                buffer.clear();
+                buffer.limit(batch * RECORD_SIZE);
+                readFully(channel, buffer, HEADER_SIZE + index * RECORD_SIZE);
+                for (int i = 0; i < batch; i++) {
+                    int position = i * RECORD_SIZE;
+                    long timestamp = buffer.getLong(position);
+                    if (timestamp > to) {
+                        return records;
+                    }
+                    int duration = buffer.getInt(position + 8);
+                    PollOutcome outcome = PollOutcome.values()[buffer.get(position + 12)];
+                    boolean hasExitCode = (buffer.get(position + 13) & FLAG_EXIT_CODE) != 0;
+                    int exitCode = buffer.getInt(position + 16);
+                    String nodeName = readString(strings, buffer.getInt(position + 20));
+                    String cause = readString(strings, buffer.getInt(position + 24));
+                    records.add(new PollHistoryRecord(timestamp, nodeName, duration, outcome, hasExitCode ? Integer.valueOf(exitCode) : null, cause));
+                }
+                index += batch;
+            }
+            return records;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Removes the pollings started before the given time and the strings they were the only ones to reference.
+     */
+    public synchronized void prune(long before) throws IOException {
+        List<PollHistoryRecord> kept = read(before, Long.MAX_VALUE);
+        File directory = recordsFile.getParentFile();
+        File newRecords = new File(directory, recordsFile.getName() + NEW_SUFFIX);
+        File newStrings = new File(directory, stringsFile.getName() + NEW_SUFFIX);
+        newRecords.delete();
+        newStrings.delete();
+
+        PollHistory pruned = new PollHistory(newRecords, newStrings);
+        pruned.recovered = true;
+        pruned.stringOffsets = new HashMap<String, Integer>();
+        pruned.openRecords().close();
+        newStrings.createNewFile();
+        for (PollHistoryRecord record : kept) {
+            pruned.append(record, 0);
+        }
+        force(newRecords);
+        force(newStrings);
+
+        File commit = new File(directory, PRUNE_COMMIT);
+        if (!commit.createNewFile() && !commit.exists()) {
+            throw new IOException("Failed to commit the pruned polling history in " + directory);
+        }
+        replaceFiles();
+        stringOffsets = pruned.stringOffsets;
+        firstTimestamp = kept.isEmpty() ? -1 : kept.get(0).getTimestamp();
+    }
+
+    /**
+     * Completes or drops a prune interrupted by a crash, and truncates the partially written record and string.
+     * Done once, before the first access to the files.
+     */
+    private void recover() throws IOException {
+        if (recovered) {
+            return;
+        }
+        File directory = recordsFile.getParentFile();
+        if (new File(directory, PRUNE_COMMIT).exists()) {
+            replaceFiles();
+        } else {
+            new File(directory, recordsFile.getName() + NEW_SUFFIX).delete();
+            new File(directory, stringsFile.getName() + NEW_SUFFIX).delete();
+        }
+
+        if (recordsFile.exists()) {
+            RandomAccessFile file = new RandomAccessFile(recordsFile, "rw");
+            try {
+                FileChannel channel = file.getChannel();
+                long count = getRecordCount(channel);
+                if (count > 0) {
+                    channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+                    lastTimestamp = readTimestamp(channel, count - 1);
+                }
+            } finally {
+                file.close();
+            }
+        }
+        if (stringsFile.exists()) {
+            ByteBuffer strings = readStrings();
+            int length = 0;
+            while (length + 4 <= strings.limit() && length + 4 + strings.getInt(length) <= strings.limit()) {
+                length += 4 + strings.getInt(length);
+            }
+            if (length < strings.limit()) {
+                RandomAccessFile file = new RandomAccessFile(stringsFile, "rw");
+                try {
+                    file.getChannel().truncate(length);
+                } finally {
+                    file.close();
+                }
+            }
+        }
+        recovered = true;
+    }
+
+    /**
+     * Replaces the files by the committed new ones, then removes the commit marker.
+     * Each step can be repeated after a crash.
+     */
+    private void replaceFiles() throws IOException {
+        File directory = recordsFile.getParentFile();
+        replace(new File(directory, recordsFile.getName() + NEW_SUFFIX), recordsFile);
+        replace(new File(directory, stringsFile.getName() + NEW_SUFFIX), stringsFile);
+        File commit = new File(directory, PRUNE_COMMIT);
+        if (!commit.delete() && commit.exists()) {
+            throw new IOException("Failed to complete the pruning of the polling history in " + directory);
+        }
+    }
+
+    private static void replace(File newFile, File file) throws IOException {
+        if (!newFile.exists()) {
+            return;
+        }
+        if ((file.exists() && !file.delete()) || !newFile.renameTo(file)) {
+            throw new IOException(String.format("Failed to replace '%s' by '%s'", file, newFile));
+        }
+    }
+
+    private static void force(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.getChannel().force(true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private RandomAccessFile openRecords() throws IOException {
+        File records = recordsFile;
+        records.getParentFile().mkdirs();
+        RandomAccessFile file = new RandomAccessFile(records, "rw");
+        if (file.length() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(0).flip();
+            file.getChannel().write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            file.getChannel().read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                file.close();
+                throw new IOException("Unsupported polling history format in " + records);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @return the number of complete records
+     */
+    private static long getRecordCount(FileChannel channel) throws IOException {
+        return Math.max(0, (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    private static long readTimestamp(FileChannel channel, long index) throws IOException {
+        ByteBuffer timestamp = ByteBuffer.allocate(8);
+        readFully(channel, timestamp, HEADER_SIZE + index * RECORD_SIZE);
+        return timestamp.getLong(0);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the polling history");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * @return the index of the first record started at or after the given time
+     */
+    private static long lowerBound(FileChannel channel, long count, long from) throws IOException {
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (readTimestamp(channel, middle) < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int storeString(String value) throws IOException {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer offset = stringOffsets.get(value);
+        if (offset != null) {
+            return offset;
+        }
+        byte[] bytes = toBytes(value);
+        File strings = stringsFile;
+        strings.getParentFile().mkdirs();
+        RandomAccessFile file = new RandomAccessFile(strings, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            long position = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes).flip();
+            channel.write(buffer, position);
+            stringOffsets.put(value, (int) position);
+            return (int) position;
+        } finally {
+            file.close();
+        }
+    }
+
+    private Map<String, Integer> loadStrings() throws IOException {
+        Map<String, Integer> offsets = new HashMap<String, Integer>();
+        ByteBuffer strings = readStrings();
+        int position = 0;
+        while (position + 4 <= strings.limit()) {
+            String value = readString(strings, position);
+            offsets.put(value, position);
+            position += 4 + strings.getInt(position);
+        }
+        return offsets;
+    }
+
+    /**
+     * @return the content of the strings file, empty if it doesn't exist
+     */
+    private ByteBuffer readStrings() throws IOException {
+        if (!stringsFile.exists()) {
+            return ByteBuffer.allocate(0);
+        }
+        RandomAccessFile file = new RandomAccessFile(stringsFile, "r");
+        try {
+            ByteBuffer strings = ByteBuffer.allocate((int) file.length());
+            readFully(file.getChannel(), strings, 0);
+            strings.flip();
+            return strings;
+        } finally {
+            file.close();
+        }
+    }
+
+    private static String readString(ByteBuffer strings, int offset) {
+        if (offset == NO_STRING || offset + 4 > strings.limit()) {
+            return null;
+        }
+        int length = strings.getInt(offset);
+        if (offset + 4 + length > strings.limit()) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = strings.get(offset + 4 + i);
+        }
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new ScriptTriggerException(uee);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new ScriptTriggerException(uee);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.Date;
+
+/**
+ * A polling stored in the {@link PollHistory} of a job.
+ */
+@ExportedBean(defaultVisibility = 2)
+public class PollHistoryRecord {
+
+    private final long timestamp;
+
+    private final String nodeName;
+
+    private final long durationMillis;
+
+    private final PollOutcome outcome;
+
+    private final Integer exitCode;
+
+    private final String cause;
+
+    public PollHistoryRecord(long timestamp, String nodeName, long durationMillis, PollOutcome outcome, Integer exitCode, String cause) {
+        this.timestamp = timestamp;
+        this.nodeName = nodeName;
+        this.durationMillis = durationMillis;
+        this.outcome = outcome;
+        this.exitCode = exitCode;
+        this.cause = cause;
+    }
+
+    @Exported
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Date getDate() {
+        return new Date(timestamp);
+    }
+
+    @Exported
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    @Exported
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Exported
+    public PollOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return the exit code of the latest script of the polling, null if no script was run
+     */
+    @Exported
+    public Integer getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return the build cause of a triggering polling or the failure message of a failed one, null otherwise
+     */
+    @Exported
+    public String getCause() {
+        return cause;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Polling statistics of a job or of a node: latency histograms per phase and outcome counters.
+ */
+@ExportedBean(defaultVisibility = 2)
+public class PollMetrics {
+
+    private final String name;
+
+    private final PollHistogram[] histograms;
+
+    private final AtomicLongArray outcomes = new AtomicLongArray(PollOutcome.values().length);
+
+    public PollMetrics(String name) {
+        this.name = name;
+        PollPhase[] phases = PollPhase.values();
+        this.histograms = new PollHistogram[phases.length];
+        for (int i = 0; i < phases.length; i++) {
+            histograms[i] = new PollHistogram(phases[i]);
+        }
+    }
+
+    void record(PollPhase phase, long nanos) {
+        histograms[phase.ordinal()].record(nanos);
+    }
+
+    void record(PollOutcome outcome) {
+        outcomes.incrementAndGet(outcome.ordinal());
+    }
+
+    @Exported
+    public String getName() {
+        return name;
+    }
+
+    public PollHistogram getHistogram(PollPhase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public PollHistogram getTotal() {
+        return getHistogram(PollPhase.TOTAL);
+    }
+
+    /**
+     * @return the histograms of the phases measured at least once
+     */
+    @Exported
+    public List<PollHistogram> getPhases() {
+        List<PollHistogram> result = new ArrayList<PollHistogram>();
+        for (PollHistogram histogram : histograms) {
+            if (histogram.getCount() != 0) {
+                result.add(histogram);
+            }
+        }
+        return result;
+    }
+
+    public long getOutcomeCount(PollOutcome outcome) {
+        return outcomes.get(outcome.ordinal());
+    }
+
+    @Exported
+    public long getTriggered() {
+        return getOutcomeCount(PollOutcome.TRIGGERED);
+    }
+
+    @Exported
+    public long getNotTriggered() {
+        return getOutcomeCount(PollOutcome.NOT_TRIGGERED);
+    }
+
+    @Exported
+    public long getErrors() {
+        return getOutcomeCount(PollOutcome.ERROR);
+    }
+
+    @Exported
+    public long getTimeouts() {
+        return getOutcomeCount(PollOutcome.TIMEOUT);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the polling statistics of the controller, per job and per node.
+ */
+public final class PollMetricsRegistry {
+
+    private static final PollMetricsRegistry INSTANCE = new PollMetricsRegistry();
+
+    private final ConcurrentMap<String, PollMetrics> jobs = new ConcurrentHashMap<String, PollMetrics>();
+
+    private final ConcurrentMap<String, PollMetrics> nodes = new ConcurrentHashMap<String, PollMetrics>();
+
+    private PollMetricsRegistry() {
+    }
+
+    public static PollMetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public PollMetrics getJobMetrics(String jobName) {
+        return getOrCreate(jobs, jobName);
+    }
+
+    public PollMetrics getNodeMetrics(String nodeName) {
+        return getOrCreate(nodes, nodeName);
+    }
+
+    /**
+     * @return the statistics of the job, null if it hasn't been polled since the start of Jenkins
+     */
+    public PollMetrics findJobMetrics(String jobName) {
+        return jobs.get(jobName);
+    }
+
+    /**
+     * Removes the statistics of the given job, or of the jobs of the given folder.
+     */
+    public void removeJobMetrics(String jobName) {
+        jobs.remove(jobName);
+        String prefix = jobName + "/";
+        for (Iterator<String> it = jobs.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static PollMetrics getOrCreate(ConcurrentMap<String, PollMetrics> metrics, String name) {
+        PollMetrics result = metrics.get(name);
+        if (result == null) {
+            PollMetrics newMetrics = new PollMetrics(name);
+            result = metrics.putIfAbsent(name, newMetrics);
+            if (result == null) {
+                result = newMetrics;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the job statistics, the slowest 99th percentile of the whole polling first
+     */
+    public List<PollMetrics> getAllJobMetrics() {
+        return sortBySlowest(jobs.values());
+    }
+
+    /**
+     * @return the node statistics, the slowest 99th percentile of the whole polling first
+     */
+    public List<PollMetrics> getAllNodeMetrics() {
+        return sortBySlowest(nodes.values());
+    }
+
+    private static List<PollMetrics> sortBySlowest(Iterable<PollMetrics> metrics) {
+        List<PollMetrics> result = new ArrayList<PollMetrics>();
+        for (PollMetrics m : metrics) {
+            result.add(m);
+        }
+        Collections.sort(result, new Comparator<PollMetrics>() {
+            public int compare(PollMetrics m1, PollMetrics m2) {
+                long p1 = m1.getHistogram(PollPhase.TOTAL).getP99Millis();
+                long p2 = m2.getHistogram(PollPhase.TOTAL).getP99Millis();
+                return p1 > p2 ? -1 : (p1 == p2 ? m1.getName().compareTo(m2.getName()) : 1);
+            }
+        });
+        return result;
+    }
+}
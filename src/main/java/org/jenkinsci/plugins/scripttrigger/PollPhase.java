@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+/**
+ * The measured phases of a polling.
+ */
+public enum PollPhase {
+
+    /**
+     * From the polling schedule to the start of the evaluation.
+     */
+    QUEUE_WAIT("Queue wait"),
+
+    ENV_RESOLUTION("Environment resolution"),
+
+    /**
+     * Reading the script file and writing the temporary script on the polling node.
+     */
+    SCRIPT_TRANSFER("Script transfer"),
+
+    /**
+     * Waiting for the {@link LaunchRateLimiter} to admit the launch on the polling node.
+     */
+    LAUNCH_WAIT("Launch wait"),
+
+    /**
+     * Running the script process, from its launch to its exit.
+     */
+    LAUNCH("Launch"),
+
+    /**
+     * Compiling and evaluating a Groovy script.
+     */
+    EVALUATION("Evaluation"),
+
+    /**
+     * Extracting the cause, the description and the parameters of the triggered build.
+     */
+    MARKER_EXTRACTION("Marker extraction"),
+
+    TOTAL("Total");
+
+    private final String displayName;
+
+    PollPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The priority and the resource limits of the polling script processes, so that the pollings don't slow down
+ * the builds running on the same node. The script is run under nice and ionice, and in a transient cgroup scope
+ * of systemd when CPU or memory limits are set. A command missing on the node is skipped with a log message.
+ */
+public class PollProcessLimits {
+
+    public static final PollProcessLimits NONE = new PollProcessLimits(0, false, 0, 0);
+
+    /**
+     * The nice value added to the priority of the process, from 0 to 19.
+     */
+    private final int niceness;
+
+    /**
+     * Runs the process in the idle IO scheduling class.
+     */
+    private final boolean idleIo;
+
+    /**
+     * Percents of one CPU usable by the process, 0 for no limit.
+     */
+    private final int cpuQuota;
+
+    /**
+     * Megabytes of memory usable by the process, 0 for no limit.
+     */
+    private final int memoryLimit;
+
+    @DataBoundConstructor
+    public PollProcessLimits(int niceness, boolean idleIo, int cpuQuota, int memoryLimit) {
+        this.niceness = Math.max(0, Math.min(19, niceness));
+        this.idleIo = idleIo;
+        this.cpuQuota = Math.max(0, cpuQuota);
+        this.memoryLimit = Math.max(0, memoryLimit);
+    }
+
+    public int getNiceness() {
+        return niceness;
+    }
+
+    public boolean isIdleIo() {
+        return idleIo;
+    }
+
+    public int getCpuQuota() {
+        return cpuQuota;
+    }
+
+    public int getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * @return the limits of the trigger, or the global defaults if the trigger doesn't set them
+     */
+    public static PollProcessLimits resolve(PollProcessLimits triggerLimits) {
+        if (triggerLimits != null) {
+            return triggerLimits;
+        }
+        ScriptTriggerConfiguration configuration = ScriptTriggerConfiguration.get();
+        return configuration == null ? NONE : configuration.getDefaultProcessLimits();
+    }
+
+    /**
+     * @return the command line running the given one with these limits on the given platform
+     */
+    public String[] wrap(String[] cmd, NodePlatform platform, XTriggerLog log) {
+        if (!platform.isUnix()) {
+            return cmd;
+        }
+
+        List<String> wrapped = new ArrayList<String>();
+        if (cpuQuota > 0 || memoryLimit > 0) {
+            if (platform.getScopeCommand() == null) {
+                log.info("No cgroup scope can be created on the node. The CPU and memory limits are ignored.");
+            } else {
+                wrapped.addAll(Arrays.asList(platform.getScopeCommand(), "--user", "--scope", "--quiet"));
+                if (cpuQuota > 0) {
+                    wrapped.add("-p");
+                    wrapped.add("CPUQuota=" + cpuQuota + "%");
+                }
+                if (memoryLimit > 0) {
+                    wrapped.add("-p");
+                    wrapped.add("MemoryMax=" + memoryLimit + "M");
+                }
+                wrapped.add("--");
+            }
+        }
+        if (idleIo) {
+            if (platform.getIoniceCommand() == null) {
+                log.info("The ionice command isn't available on the node. The IO priority is unchanged.");
+            } else {
+                wrapped.addAll(Arrays.asList(platform.getIoniceCommand(), "-c", "3"));
+            }
+        }
+        if (niceness > 0) {
+            if (platform.getNiceCommand() == null) {
+                log.info("The nice command isn't available on the node. The CPU priority is unchanged.");
+            } else {
+                wrapped.addAll(Arrays.asList(platform.getNiceCommand(), "-n", String.valueOf(niceness)));
+            }
+        }
+        if (wrapped.isEmpty()) {
+            return cmd;
+        }
+        wrapped.addAll(Arrays.asList(cmd));
+        return wrapped.toArray(new String[wrapped.size()]);
+    }
+}
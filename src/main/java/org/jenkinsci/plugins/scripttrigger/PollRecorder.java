@@ -0,0 +1,112 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the phases and the outcome of a single polling of a job on a node.
+ */
+public class PollRecorder {
+
+    /**
+     * A recorder discarding all measures.
+     */
+    public static final PollRecorder NONE = new PollRecorder(null, null, null, null);
+
+    private final String jobName;
+
+    private final String nodeName;
+
+    private final PollMetrics jobMetrics;
+
+    private final PollMetrics nodeMetrics;
+
+    private final long startedAt = System.nanoTime();
+
+    private final long startedAtMillis = System.currentTimeMillis();
+
+    private PollRecorder(String jobName, String nodeName, PollMetrics jobMetrics, PollMetrics nodeMetrics) {
+        this.jobName = jobName;
+        this.nodeName = nodeName;
+        this.jobMetrics = jobMetrics;
+        this.nodeMetrics = nodeMetrics;
+    }
+
+    /**
+     * Starts recording a polling.
+     *
+     * @param scheduledAt the {@link System#nanoTime()} of the polling schedule, 0 if unknown
+     */
+    public static PollRecorder start(String jobName, String nodeName, long scheduledAt) {
+        PollMetricsRegistry registry = PollMetricsRegistry.getInstance();
+        PollRecorder recorder = new PollRecorder(jobName, nodeName, registry.getJobMetrics(jobName), registry.getNodeMetrics(nodeName));
+        if (scheduledAt != 0) {
+            recorder.recordNanos(PollPhase.QUEUE_WAIT, recorder.startedAt - scheduledAt);
+        }
+        return recorder;
+    }
+
+    /**
+     * Records a phase started at the given {@link System#nanoTime()} and ending now.
+     */
+    public void record(PollPhase phase, long startNanos) {
+        recordNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(PollPhase phase, long nanos) {
+        if (jobMetrics != null) {
+            jobMetrics.record(phase, nanos);
+        }
+        if (nodeMetrics != null) {
+            nodeMetrics.record(phase, nanos);
+        }
+    }
+
+    public void finish(PollOutcome outcome) {
+        finish(outcome, null);
+    }
+
+    /**
+     * Records the end of the polling.
+     *
+     * @param failure the cause of the polling failure, null if the polling succeeded
+     */
+    public void finish(PollOutcome outcome, Throwable failure) {
+        long duration = System.nanoTime() - startedAt;
+        recordNanos(PollPhase.TOTAL, duration);
+        if (jobMetrics != null) {
+            jobMetrics.record(outcome);
+        }
+        if (nodeMetrics != null) {
+            nodeMetrics.record(outcome);
+        }
+        if (jobName != null) {
+            String error = null;
+            if (failure != null) {
+                error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+            }
+            PollResultRing.getInstance().add(new PollResult(jobName, nodeName, startedAtMillis, TimeUnit.NANOSECONDS.toMillis(duration), outcome, error));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.util.Date;
+
+/**
+ * The summary of a completed polling.
+ */
+public class PollResult {
+
+    private final String jobName;
+
+    private final String nodeName;
+
+    private final long timestamp;
+
+    private final long durationMillis;
+
+    private final PollOutcome outcome;
+
+    private final String error;
+
+    public PollResult(String jobName, String nodeName, long timestamp, long durationMillis, PollOutcome outcome, String error) {
+        this.jobName = jobName;
+        this.nodeName = nodeName;
+        this.timestamp = timestamp;
+        this.durationMillis = durationMillis;
+        this.outcome = outcome;
+        this.error = error;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Date getDate() {
+        return new Date(timestamp);
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public PollOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return the failure message, null if the polling succeeded
+     */
+    public String getError() {
+        return error;
+    }
+}
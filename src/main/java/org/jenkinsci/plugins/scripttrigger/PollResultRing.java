@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed size in-memory ring of the most recent polling results of the controller.
+ */
+public final class PollResultRing {
+
+    private static final int CAPACITY = Integer.getInteger(PollResultRing.class.getName() + ".capacity", 4096);
+
+    private static final PollResultRing INSTANCE = new PollResultRing(CAPACITY);
+
+    private final AtomicReferenceArray<PollResult> results;
+
+    private final AtomicLong next = new AtomicLong();
+
+    PollResultRing(int capacity) {
+        this.results = new AtomicReferenceArray<PollResult>(Math.max(1, capacity));
+    }
+
+    public static PollResultRing getInstance() {
+        return INSTANCE;
+    }
+
+    public void add(PollResult result) {
+        int index = (int) (next.getAndIncrement() % results.length());
+        results.set(index, result);
+    }
+
+    /**
+     * @return the latest polling result of each job still in the ring, by job full name
+     */
+    public Map<String, PollResult> getLatestResultsByJob() {
+        Map<String, PollResult> latest = new HashMap<String, PollResult>();
+        for (int i = 0; i < results.length(); i++) {
+            PollResult result = results.get(i);
+            if (result == null) {
+                continue;
+            }
+            PollResult known = latest.get(result.getJobName());
+            if (known == null || known.getTimestamp() < result.getTimestamp()) {
+                latest.put(result.getJobName(), result);
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Util;
+import hudson.XmlFile;
+import jenkins.model.Jenkins;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The state of a trigger kept across the restarts of Jenkins: the outcome of the latest polling,
+ * the state of its {@link CircuitBreaker} and the values compared by the next polling, such as the output
+ * digest of a script. Without it, all the triggers detecting changes would start again from nothing
+ * after a restart.
+ */
+public class PollState {
+
+    private PollOutcome lastOutcome;
+
+    private long lastPollTime;
+
+    private long lastSuccessTime;
+
+    private int consecutiveFailures;
+
+    private long openUntil;
+
+    private String lastFailure;
+
+    /**
+     * The values compared by the next polling, by name.
+     */
+    private Map<String, String> values;
+
+    /**
+     * @return the state stored in the given file, an empty state if the file doesn't exist
+     */
+    public static PollState load(File file) throws IOException {
+        XmlFile xmlFile = new XmlFile(Jenkins.XSTREAM2, file);
+        if (!xmlFile.exists()) {
+            return new PollState();
+        }
+        return (PollState) xmlFile.read();
+    }
+
+    /**
+     * @return a name identifying the given configuration, such as a probe, among the values:
+     * the value of a configuration that is moved or left unchanged by a job configuration change is kept
+     */
+    public static String keyOf(Object configuration) {
+        return Util.getDigestOf(Jenkins.XSTREAM2.toXML(configuration));
+    }
+
+    public synchronized void save(File file) throws IOException {
+        new XmlFile(Jenkins.XSTREAM2, file).write(this);
+    }
+
+    /**
+     * Records the end of a polling with the state of the breaker after it.
+     */
+    synchronized void recordPolling(PollOutcome outcome, long time, CircuitBreaker breaker) {
+        lastOutcome = outcome;
+        lastPollTime = time;
+        if (outcome == PollOutcome.TRIGGERED || outcome == PollOutcome.NOT_TRIGGERED) {
+            lastSuccessTime = time;
+        }
+        consecutiveFailures = breaker.getConsecutiveFailures();
+        openUntil = breaker.getOpenUntilMillis();
+        lastFailure = breaker.getLastFailure();
+    }
+
+    /**
+     * @return a breaker in the recorded state
+     */
+    synchronized CircuitBreaker restoreCircuitBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.restore(consecutiveFailures, openUntil, lastFailure);
+        return breaker;
+    }
+
+    /**
+     * Forgets the failures recorded for the breaker.
+     *
+     * @return false if there was none
+     */
+    synchronized boolean resetCircuitBreaker() {
+        if (consecutiveFailures == 0 && openUntil == 0 && lastFailure == null) {
+            return false;
+        }
+        consecutiveFailures = 0;
+        openUntil = 0;
+        lastFailure = null;
+        return true;
+    }
+
+    public synchronized PollOutcome getLastOutcome() {
+        return lastOutcome;
+    }
+
+    public synchronized Date getLastPollTime() {
+        return lastPollTime == 0 ? null : new Date(lastPollTime);
+    }
+
+    public synchronized Date getLastSuccessTime() {
+        return lastSuccessTime == 0 ? null : new Date(lastSuccessTime);
+    }
+
+    public synchronized String getValue(String name) {
+        return values == null ? null : values.get(name);
+    }
+
+    /**
+     * @param value the value, null to remove it
+     */
+    public synchronized void setValue(String name, String value) {
+        if (values == null) {
+            values = new HashMap<String, String>();
+        }
+        if (value == null) {
+            values.remove(name);
+        } else {
+            values.put(name, value);
+        }
+    }
+
+    /**
+     * Removes the values whose name starts with the given prefix and isn't one of the given names,
+     * such as the values of the probes removed from the configuration.
+     */
+    public synchronized void retainValues(String prefix, Collection<String> names) {
+        if (values == null) {
+            return;
+        }
+        for (Iterator<String> it = values.keySet().iterator(); it.hasNext(); ) {
+            String name = it.next();
+            if (name.startsWith(prefix) && !names.contains(name)) {
+                it.remove();
+            }
+        }
+    }
+}
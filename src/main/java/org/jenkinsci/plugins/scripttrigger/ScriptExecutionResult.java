@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a script execution: its exit code, the digest of its output and the markers it printed.
+ */
+public class ScriptExecutionResult implements Serializable {
+
+    private final int exitCode;
+
+    private final byte[] outputDigest;
+
+    private final String cause;
+
+    private final String description;
+
+    private final HashMap<String, String> parameters;
+
+    public ScriptExecutionResult(int exitCode, byte[] outputDigest) {
+        this(exitCode, outputDigest, null, null);
+    }
+
+    public ScriptExecutionResult(int exitCode, byte[] outputDigest, String cause, String description) {
+        this(exitCode, outputDigest, cause, description, null);
+    }
+
+    public ScriptExecutionResult(int exitCode, byte[] outputDigest, String cause, String description, Map<String, String> parameters) {
+        this.exitCode = exitCode;
+        this.outputDigest = outputDigest;
+        this.cause = cause;
+        this.description = description;
+        this.parameters = parameters == null ? null : new LinkedHashMap<String, String>(parameters);
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return the digest of the script output, or of its latest designated result value if any
+     */
+    public byte[] getOutputDigest() {
+        return outputDigest;
+    }
+
+    /**
+     * @return the <cause></cause> value printed by the script, null if none
+     */
+    public String getCause() {
+        return cause;
+    }
+
+    /**
+     * @return the <description></description> value printed by the script, null if none
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the '##param NAME=value' values printed by the script by name, empty if none
+     */
+    public Map<String, String> getParameters() {
+        return parameters == null ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(parameters);
+    }
+}
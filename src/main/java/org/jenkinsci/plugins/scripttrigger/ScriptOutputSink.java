@@ -0,0 +1,230 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Receives the output of a script, forwards it to the polling log and digests it on the fly.
+ * The output is never retained: only the current line is buffered to detect the <result></result>,
+ * <cause></cause> and <description></description> values and the '##param NAME=value' lines,
+ * so they are found even if the log is capped. The lines are cut at 8 KB, and a cut parameter line is ignored
+ * rather than giving a truncated value.
+ */
+public class ScriptOutputSink extends OutputStream {
+
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private static final String PARAMETER_MARKER = "##param ";
+
+    private static final int MAX_PARAMETERS = 1000;
+
+    private final OutputStream out;
+
+    private final MessageDigest outputDigest;
+
+    private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+    private boolean currentLineTruncated;
+
+    private String resultValue;
+
+    private String cause;
+
+    private String description;
+
+    private final Map<String, String> parameters = new LinkedHashMap<String, String>();
+
+    private final Set<String> truncatedParameters = new LinkedHashSet<String>();
+
+    private byte[] digest;
+
+    public ScriptOutputSink(OutputStream out) {
+        this.out = out;
+        this.outputDigest = newDigest();
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        out.write(b);
+        outputDigest.update((byte) b);
+        scan((byte) b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        outputDigest.update(b, off, len);
+        for (int i = off; i < off + len; i++) {
+            scan(b[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying stream, see {@link CappedOutputStream#close()}.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void scan(byte b) {
+        if (b == '\n') {
+            endLine();
+        } else if (currentLine.size() < MAX_LINE_LENGTH) {
+            currentLine.write(b);
+        } else {
+            currentLineTruncated = true;
+        }
+    }
+
+    private void endLine() {
+        if (currentLine.size() == 0) {
+            return;
+        }
+        String line = toString(currentLine.toByteArray());
+        boolean truncated = currentLineTruncated;
+        currentLine.reset();
+        currentLineTruncated = false;
+        String value = StringUtils.substringBetween(line, "<result>", "</result>");
+        if (value != null) {
+            resultValue = value;
+        }
+        if (cause == null) {
+            cause = AbstractTrigger.extractRootCause(line);
+        }
+        String lineDescription = AbstractTrigger.extractDescription(line);
+        if (lineDescription != null) {
+            description = lineDescription;
+        }
+        extractParameter(line, truncated);
+    }
+
+    private void extractParameter(String line, boolean truncated) {
+        if (!line.startsWith(PARAMETER_MARKER)) {
+            return;
+        }
+        String parameter = StringUtils.removeEnd(line.substring(PARAMETER_MARKER.length()), "\r");
+        int separator = parameter.indexOf('=');
+        if (separator <= 0) {
+            return;
+        }
+        String name = parameter.substring(0, separator).trim();
+        if (name.length() == 0) {
+            return;
+        }
+        if (truncated) {
+            truncatedParameters.add(name);
+        } else if (parameters.size() < MAX_PARAMETERS || parameters.containsKey(name)) {
+            parameters.put(name, parameter.substring(separator + 1));
+            truncatedParameters.remove(name);
+        }
+    }
+
+    /**
+     * @return the first <cause></cause> value printed by the script, null if none
+     */
+    public synchronized String getCause() {
+        endLine();
+        return cause;
+    }
+
+    /**
+     * @return the latest <description></description> value printed by the script, null if none
+     */
+    public synchronized String getDescription() {
+        endLine();
+        return description;
+    }
+
+    /**
+     * @return the values of the '##param NAME=value' lines printed by the script by name, the latest value winning
+     */
+    public synchronized Map<String, String> getParameters() {
+        endLine();
+        return new LinkedHashMap<String, String>(parameters);
+    }
+
+    /**
+     * @return the names of the parameters ignored because their latest line was longer than 8 KB
+     */
+    public synchronized Set<String> getTruncatedParameters() {
+        endLine();
+        return new LinkedHashSet<String>(truncatedParameters);
+    }
+
+    /**
+     * @return the digest of the latest <result></result> value if the script printed one, of the whole output otherwise
+     */
+    public synchronized byte[] getDigest() {
+        if (digest == null) {
+            endLine();
+            if (resultValue != null) {
+                digest = newDigest().digest(toBytes(resultValue));
+            } else {
+                digest = outputDigest.digest();
+            }
+        }
+        return digest;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new ScriptTriggerException(nsae);
+        }
+    }
+
+    private static String toString(byte[] bytes) {
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new ScriptTriggerException(uee);
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        try {
+            return value.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new ScriptTriggerException(uee);
+        }
+    }
+}
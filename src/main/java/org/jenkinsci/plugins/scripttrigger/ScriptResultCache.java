@@ -0,0 +1,188 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Util;
+import hudson.model.Node;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shared cache of script evaluation results, keyed by script content, node and referenced environment variables.
+ * Identical evaluations running concurrently join the one already in flight.
+ */
+public final class ScriptResultCache {
+
+    private static final ScriptResultCache INSTANCE = new ScriptResultCache();
+
+    private static final Pattern ENV_VAR_REFERENCE = Pattern.compile("\\$\\{?([A-Za-z_][A-Za-z0-9_]*)\\}?|%([A-Za-z_][A-Za-z0-9_]*)%");
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private ScriptResultCache() {
+    }
+
+    public static ScriptResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the cache key of a script evaluation.
+     * Only the environment variables referenced by the script take part in the key.
+     */
+    public static String computeKey(String scriptContent, Node executingNode, Map<String, String> envVars) {
+        SortedMap<String, String> referencedVars = new TreeMap<String, String>();
+        if (envVars != null) {
+            Matcher matcher = ENV_VAR_REFERENCE.matcher(scriptContent);
+            while (matcher.find()) {
+                String name = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+                if (envVars.containsKey(name)) {
+                    referencedVars.put(name, envVars.get(name));
+                }
+            }
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scriptContent.getBytes("UTF-8"));
+            digest.update((byte) 0);
+            digest.update(executingNode.getNodeName().getBytes("UTF-8"));
+            for (Map.Entry<String, String> var : referencedVars.entrySet()) {
+                digest.update((byte) 0);
+                digest.update(var.getKey().getBytes("UTF-8"));
+                digest.update((byte) '=');
+                digest.update(String.valueOf(var.getValue()).getBytes("UTF-8"));
+            }
+            return Util.toHexString(digest.digest());
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new ScriptTriggerException(nsae);
+        } catch (UnsupportedEncodingException uee) {
+            throw new ScriptTriggerException(uee);
+        }
+    }
+
+    /**
+     * Returns the result cached for the given key if it is younger than the given time to live.
+     * Otherwise, runs the evaluation, or waits for an identical evaluation already running.
+     * Failed evaluations are never cached.
+     */
+    public ScriptExecutionResult getResult(String key, long ttlMillis, Callable<ScriptExecutionResult> evaluation, XTriggerLog log) throws ScriptTriggerException {
+
+        Entry entry;
+        boolean owner = false;
+        while (true) {
+            entry = entries.get(key);
+            if (entry != null && !entry.isExpired(System.currentTimeMillis(), ttlMillis)) {
+                break;
+            }
+            Entry newEntry = new Entry(evaluation, ttlMillis);
+            boolean registered = (entry == null) ? entries.putIfAbsent(key, newEntry) == null : entries.replace(key, entry, newEntry);
+            if (registered) {
+                entry = newEntry;
+                owner = true;
+                break;
+            }
+        }
+
+        if (owner) {
+            purgeExpiredEntries();
+            entry.run();
+        } else if (entry.isDone()) {
+            log.info("Reusing the cached result of an identical script evaluation.");
+        } else {
+            log.info("Waiting for an identical script evaluation in progress.");
+        }
+
+        try {
+            return entry.task.get();
+        } catch (ExecutionException ee) {
+            entries.remove(key, entry);
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ScriptTriggerException(cause);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ScriptTriggerException(ie);
+        }
+    }
+
+    private void purgeExpiredEntries() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.isExpired(now, entry.ttlMillis)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final FutureTask<ScriptExecutionResult> task;
+
+        private final long ttlMillis;
+
+        private volatile long completedAt;
+
+        private Entry(Callable<ScriptExecutionResult> evaluation, long ttlMillis) {
+            this.task = new FutureTask<ScriptExecutionResult>(evaluation);
+            this.ttlMillis = ttlMillis;
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } finally {
+                completedAt = System.currentTimeMillis();
+            }
+        }
+
+        private boolean isDone() {
+            return task.isDone();
+        }
+
+        private boolean isExpired(long now, long ttlMillis) {
+            return task.isDone() && completedAt != 0 && now - completedAt >= ttlMillis;
+        }
+    }
+}
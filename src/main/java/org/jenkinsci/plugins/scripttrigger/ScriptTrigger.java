@@ -27,37 +27,110 @@ import hudson.Extension;
 import hudson.Util;
 import hudson.console.AnnotatedLargeText;
 import hudson.model.*;
+import hudson.util.FormValidation;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.jelly.XMLOutput;
 import org.jenkinsci.lib.envinject.EnvInjectException;
 import org.jenkinsci.lib.envinject.service.EnvVarsResolver;
 import org.jenkinsci.lib.xtrigger.XTriggerDescriptor;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectStreamException;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Gregory Boissinot
  */
 public class ScriptTrigger extends AbstractTrigger {
 
+    /**
+     * The name of the output digest of the previous polling in the {@link PollState}.
+     */
+    private static final String OUTPUT_DIGEST = "outputDigest";
+
     private String script;
 
     private String scriptFilePath;
 
     private String exitCode;
 
+    /**
+     * Time to live in seconds of the shared result cache. The cache is not used when it is not positive.
+     */
+    private int resultCacheTtl;
+
+    /**
+     * Triggers a build when the digest of the script output changes, instead of when the exit code is the expected one.
+     */
+    private boolean triggerOnOutputChange;
+
+    /**
+     * The priority and resource limits of the script processes, the global defaults if null.
+     */
+    private PollProcessLimits processLimits;
+
+    private transient ExitCodeSet expectedExitCodes;
+
     @DataBoundConstructor
-    public ScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String script, String scriptFilePath, String exitCode) throws ANTLRException {
+    public ScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String script, String scriptFilePath, String exitCode, String resultCacheTtl, boolean triggerOnOutputChange, PollProcessLimits processLimits) throws ANTLRException {
         super(cronTabSpec, (labelRestriction == null) ? false : true, (labelRestriction == null) ? null : labelRestriction.getTriggerLabel(), enableConcurrentBuild);
         this.script = Util.fixEmpty(script);
         this.scriptFilePath = Util.fixEmpty(scriptFilePath);
         this.exitCode = Util.fixEmpty(exitCode);
+        this.resultCacheTtl = parseResultCacheTtl(resultCacheTtl);
+        this.triggerOnOutputChange = triggerOnOutputChange;
+        this.processLimits = processLimits;
+        this.expectedExitCodes = parseExitCode(this.exitCode);
+    }
+
+    @Deprecated
+    public ScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String script, String scriptFilePath, String exitCode, String resultCacheTtl, boolean triggerOnOutputChange) throws ANTLRException {
+        this(cronTabSpec, labelRestriction, enableConcurrentBuild, script, scriptFilePath, exitCode, resultCacheTtl, triggerOnOutputChange, null);
+    }
+
+    @Deprecated
+    public ScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String script, String scriptFilePath, String exitCode) throws ANTLRException {
+        this(cronTabSpec, labelRestriction, enableConcurrentBuild, script, scriptFilePath, exitCode, null, false, null);
+    }
+
+    @Override
+    protected Object readResolve() throws ObjectStreamException {
+        expectedExitCodes = parseExitCode(exitCode);
+        return super.readResolve();
+    }
+
+    /**
+     * @return the parsed exit codes, or null if the given value is malformed
+     */
+    private static ExitCodeSet parseExitCode(String exitCode) {
+        try {
+            return ExitCodeSet.parse(exitCode);
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+    private static int parseResultCacheTtl(String value) {
+        value = Util.fixEmptyAndTrim(value);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
     }
 
     @SuppressWarnings("unused")
@@ -75,6 +148,21 @@ public class ScriptTrigger extends AbstractTrigger {
         return exitCode;
     }
 
+    @SuppressWarnings("unused")
+    public String getResultCacheTtl() {
+        return resultCacheTtl > 0 ? String.valueOf(resultCacheTtl) : null;
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isTriggerOnOutputChange() {
+        return triggerOnOutputChange;
+    }
+
+    @SuppressWarnings("unused")
+    public PollProcessLimits getProcessLimits() {
+        return processLimits;
+    }
+
     @Override
     public Collection<? extends Action> getProjectActions() {
         ScriptTriggerAction action = new InternalScriptTriggerAction(getDescriptor().getDisplayName());
@@ -92,57 +180,85 @@ public class ScriptTrigger extends AbstractTrigger {
     }
 
     @Override
-    protected String getDefaultMessageCause() {
-        return "The execution script returns the expected exit code";
+    protected File getOutputSpillFile() {
+        return new File(job.getRootDir(), "scriptTrigger-output.gz");
     }
 
-    @Override
-    protected boolean checkIfModified(Node executingNode, XTriggerLog log) throws ScriptTriggerException {
+    /**
+     * The output digest file of the previous versions, now merged in the {@link PollState}.
+     */
+    private File getOutputDigestFile() {
+        return new File(job.getRootDir(), "scriptTrigger-output.digest");
+    }
 
-        int expectedExitCode = getExpectedExitCode();
-        log.info("The expected script execution code is " + expectedExitCode);
+    @Override
+    protected File getStateFile() {
+        return new File(job.getRootDir(), "scriptTrigger-state.xml");
+    }
 
-        return checkIfModifiedWithScriptsEvaluation(executingNode, expectedExitCode, log);
+    @Override
+    protected String getDefaultMessageCause() {
+        if (triggerOnOutputChange) {
+            return "The execution script output has changed";
+        }
+        return "The execution script returns the expected exit code";
     }
 
-    private int getExpectedExitCode() throws ScriptTriggerException {
+    @Override
+    protected boolean checkIfModified(Node executingNode, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
 
-        //not set
-        if (exitCode == null) {
-            return 0;
+        if (expectedExitCodes == null) {
+            log.info(String.format("The given exit code '%s' is invalid. Fix the job configuration.", exitCode));
+            return false;
         }
+        log.info("The expected script execution code is " + expectedExitCodes);
 
-        try {
-            return Integer.parseInt(exitCode);
-        } catch (NumberFormatException nfe) {
-            throw new ScriptTriggerException(String.format("The given exit code must be a numeric value. The given value is '%s'.", exitCode));
+        NodeExecutionContext context = NodeExecutionContext.of(executingNode);
+        if (context == null) {
+            log.info(String.format("The node '%s' is offline. Skipping the polling.", getNodeName(executingNode)));
+            return false;
         }
+
+        return checkIfModifiedWithScriptsEvaluation(context, expectedExitCodes, log, recorder);
     }
 
-    private boolean checkIfModifiedWithScriptsEvaluation(Node executingNode, int expectedExitCode, XTriggerLog log) throws ScriptTriggerException {
+    private boolean checkIfModifiedWithScriptsEvaluation(NodeExecutionContext context, ExitCodeSet expectedExitCodes, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
 
-        ScriptTriggerExecutor executor = getScriptTriggerExecutor(log);
+        ScriptTriggerExecutor executor = getScriptTriggerExecutor(log, recorder);
 
+        long envStart = System.nanoTime();
         EnvVarsResolver envVarsResolver = new EnvVarsResolver();
         Map<String, String> envVars;
         try {
-            envVars = envVarsResolver.getPollingEnvVars((AbstractProject) job, executingNode);
+            envVars = envVarsResolver.getPollingEnvVars((AbstractProject) job, context.getNode());
         } catch (EnvInjectException e) {
             throw new ScriptTriggerException(e);
+        } finally {
+            recorder.record(PollPhase.ENV_RESOLUTION, envStart);
+        }
+
+        if (triggerOnOutputChange) {
+            return checkIfOutputChanged(executor, context, envVars, expectedExitCodes, log);
         }
 
         if (script != null) {
-            int exitCode = executor.executeScriptAndGetExitCode(executingNode, script, envVars);
-            boolean evaluationSucceed = testExpectedExitCode(exitCode, expectedExitCode, log);
+            ScriptExecutionResult result = executeInlineScript(executor, context, envVars, log);
+            recordOutputMarkers(result.getCause(), result.getDescription());
+            recordExitCode(result.getExitCode());
+            boolean evaluationSucceed = testExpectedExitCode(result.getExitCode(), expectedExitCodes, log);
             if (evaluationSucceed) {
+                recordOutputParameters(result.getParameters());
                 return true;
             }
         }
 
         if (scriptFilePath != null) {
-            int exitCode = executor.executeScriptPathAndGetExitCode(executingNode, scriptFilePath, envVars);
-            boolean evaluationSucceed = testExpectedExitCode(exitCode, expectedExitCode, log);
+            ScriptExecutionResult result = executor.executeScriptPathAndGetResult(context, scriptFilePath, envVars);
+            recordOutputMarkers(result.getCause(), result.getDescription());
+            recordExitCode(result.getExitCode());
+            boolean evaluationSucceed = testExpectedExitCode(result.getExitCode(), expectedExitCodes, log);
             if (evaluationSucceed) {
+                recordOutputParameters(result.getParameters());
                 return true;
             }
         }
@@ -150,14 +266,97 @@ public class ScriptTrigger extends AbstractTrigger {
         return false;
     }
 
-    private ScriptTriggerExecutor getScriptTriggerExecutor(XTriggerLog log) throws ScriptTriggerException {
-        return new ScriptTriggerExecutor(log);
+    private boolean checkIfOutputChanged(ScriptTriggerExecutor executor, NodeExecutionContext context, Map<String, String> envVars, ExitCodeSet expectedExitCodes, XTriggerLog log) throws ScriptTriggerException {
+
+        MessageDigest outputDigest;
+        try {
+            outputDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new ScriptTriggerException(nsae);
+        }
+
+        if (script != null) {
+            ScriptExecutionResult result = executeInlineScript(executor, context, envVars, log);
+            recordOutputMarkers(result.getCause(), result.getDescription());
+            recordExitCode(result.getExitCode());
+            if (!testExpectedExitCode(result.getExitCode(), expectedExitCodes, log)) {
+                log.info("The script output is ignored.");
+                return false;
+            }
+            recordOutputParameters(result.getParameters());
+            outputDigest.update(result.getOutputDigest());
+        }
+
+        if (scriptFilePath != null) {
+            ScriptExecutionResult result = executor.executeScriptPathAndGetResult(context, scriptFilePath, envVars);
+            recordOutputMarkers(result.getCause(), result.getDescription());
+            recordExitCode(result.getExitCode());
+            if (!testExpectedExitCode(result.getExitCode(), expectedExitCodes, log)) {
+                log.info("The script output is ignored.");
+                return false;
+            }
+            recordOutputParameters(result.getParameters());
+            outputDigest.update(result.getOutputDigest());
+        }
+
+        return updateOutputDigest(outputDigest.digest(), log);
     }
 
-    private boolean testExpectedExitCode(int exitCode, int expectedExitCode, XTriggerLog log) {
+    private synchronized boolean updateOutputDigest(byte[] digest, XTriggerLog log) throws ScriptTriggerException {
+        String currentDigest = Util.toHexString(digest);
+        log.info(String.format("The output digest is '%s'.", currentDigest));
+        PollState state = getPollState();
+        File legacyDigestFile = getOutputDigestFile();
+        try {
+            String previousDigest = state.getValue(OUTPUT_DIGEST);
+            if (previousDigest == null && legacyDigestFile.exists()) {
+                previousDigest = Util.toHexString(FileUtils.readFileToByteArray(legacyDigestFile));
+            }
+            if (currentDigest.equals(previousDigest)) {
+                log.info("The output hasn't changed.");
+                return false;
+            }
+
+            state.setValue(OUTPUT_DIGEST, currentDigest);
+            savePollState(log);
+            if (legacyDigestFile.exists() && !legacyDigestFile.delete()) {
+                log.info(String.format("Failed to delete the former output digest file '%s'.", legacyDigestFile));
+            }
+            if (previousDigest == null) {
+                log.info("No previous output digest. Recording the current one.");
+                return false;
+            }
+            log.info("The output has changed.");
+            return true;
+        } catch (IOException ioe) {
+            throw new ScriptTriggerException(ioe);
+        }
+    }
+
+    private ScriptExecutionResult executeInlineScript(final ScriptTriggerExecutor executor, final NodeExecutionContext context, final Map<String, String> envVars, XTriggerLog log) throws ScriptTriggerException {
+        if (resultCacheTtl <= 0) {
+            return executor.executeScriptAndGetResult(context, script, envVars);
+        }
+
+        String key = ScriptResultCache.computeKey(script, context.getNode(), envVars);
+        return ScriptResultCache.getInstance().getResult(key, TimeUnit.SECONDS.toMillis(resultCacheTtl), new Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() throws ScriptTriggerException {
+                return executor.executeScriptAndGetResult(context, script, envVars);
+            }
+        }, log);
+    }
+
+    private ScriptTriggerExecutor getScriptTriggerExecutor(XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
+        ScriptTriggerExecutor executor = new ScriptTriggerExecutor(log, recorder);
+        executor.setOutputSpillFile(getOutputSpillFile());
+        executor.setProcessLimits(PollProcessLimits.resolve(processLimits));
+        return executor;
+    }
+
+    private boolean testExpectedExitCode(int exitCode, ExitCodeSet expectedExitCodes, XTriggerLog log) {
         log.info(String.format("The exit code is '%s'.", exitCode));
-        log.info(String.format("Testing if the script execution code returns '%s'.", expectedExitCode));
-        return expectedExitCode == exitCode;
+        log.info(String.format("Testing if the script execution code returns '%s'.", expectedExitCodes));
+        return expectedExitCodes.contains(exitCode);
     }
 
     @Extension
@@ -178,6 +377,30 @@ public class ScriptTrigger extends AbstractTrigger {
         public String getHelpFile() {
             return "/plugin/scripttrigger/help-script.html";
         }
+
+        public FormValidation doCheckExitCode(@QueryParameter String value) {
+            try {
+                ExitCodeSet.parse(Util.fixEmptyAndTrim(value));
+                return FormValidation.ok();
+            } catch (IllegalArgumentException iae) {
+                return FormValidation.error(iae.getMessage());
+            }
+        }
+
+        public FormValidation doCheckResultCacheTtl(@QueryParameter String value) {
+            value = Util.fixEmptyAndTrim(value);
+            if (value == null) {
+                return FormValidation.ok();
+            }
+            try {
+                if (Integer.parseInt(value) < 0) {
+                    return FormValidation.error("The time to live must be a positive number of seconds.");
+                }
+                return FormValidation.ok();
+            } catch (NumberFormatException nfe) {
+                return FormValidation.error("The time to live must be a number of seconds.");
+            }
+        }
     }
 
     public final class InternalScriptTriggerAction extends ScriptTriggerAction {
@@ -213,6 +436,11 @@ public class ScriptTrigger extends AbstractTrigger {
             return actionTitle;
         }
 
+        @SuppressWarnings("unused")
+        public CircuitBreaker getCircuitBreaker() {
+            return ScriptTrigger.this.getCircuitBreaker();
+        }
+
         @SuppressWarnings("unused")
         public String getLog() throws IOException {
             return Util.loadFile(getLogFile());
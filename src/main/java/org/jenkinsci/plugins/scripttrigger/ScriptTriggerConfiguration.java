@@ -0,0 +1,398 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * The global settings of the script triggers.
+ */
+@Extension
+public class ScriptTriggerConfiguration extends GlobalConfiguration {
+
+    static final int DEFAULT_OUTPUT_HEAD_SIZE = 256;
+
+    static final int DEFAULT_OUTPUT_TAIL_SIZE = 256;
+
+    static final int DEFAULT_OUTPUT_SPILL_LIMIT = 64;
+
+    static final int DEFAULT_POLL_HISTORY_DAYS = 30;
+
+    static final int DEFAULT_BREAKER_THRESHOLD = 3;
+
+    static final int DEFAULT_BREAKER_INITIAL_BACKOFF = 1;
+
+    static final int DEFAULT_BREAKER_MAX_BACKOFF = 60;
+
+    static final int DEFAULT_NODE_LAUNCH_BURST = 5;
+
+    static final int DEFAULT_GLOBAL_LAUNCH_BURST = 20;
+
+    /**
+     * The platform charset, used to read the system script files before the charset could be configured.
+     */
+    static final String DEFAULT_SYSTEM_SCRIPT_CHARSET = Charset.defaultCharset().name();
+
+    static final int DEFAULT_GROOVY_MAX_CONCURRENT_POLLINGS = 64;
+
+    /**
+     * Kilobytes of script output written to the polling log before the output is capped, negative for no cap.
+     */
+    private int outputHeadSize = DEFAULT_OUTPUT_HEAD_SIZE;
+
+    /**
+     * Kilobytes at the end of the script output kept in memory and written to the polling log.
+     */
+    private int outputTailSize = DEFAULT_OUTPUT_TAIL_SIZE;
+
+    /**
+     * Megabytes of script output written to the compressed side file, between the head and the tail.
+     */
+    private int outputSpillLimit = DEFAULT_OUTPUT_SPILL_LIMIT;
+
+    /**
+     * Days of pollings kept in the {@link PollHistory} of each job, 0 to not record the pollings.
+     */
+    private int pollHistoryDays = DEFAULT_POLL_HISTORY_DAYS;
+
+    /**
+     * Sends each write of a script run on a node to the master, instead of sending the output in chunks.
+     */
+    private boolean outputStreamed;
+
+    /**
+     * Consecutive polling failures suspending the pollings of a trigger, 0 to never suspend them.
+     */
+    private int breakerThreshold = DEFAULT_BREAKER_THRESHOLD;
+
+    /**
+     * Minutes for which the pollings are suspended at the threshold, doubled by each new failure.
+     */
+    private int breakerInitialBackoff = DEFAULT_BREAKER_INITIAL_BACKOFF;
+
+    /**
+     * Maximum minutes for which the pollings are suspended.
+     */
+    private int breakerMaxBackoff = DEFAULT_BREAKER_MAX_BACKOFF;
+
+    /**
+     * Script launches per minute admitted on each node by the {@link LaunchRateLimiter}, 0 for no limit.
+     */
+    private int nodeLaunchRate;
+
+    /**
+     * Script launches admitted at once on each node before the rate applies.
+     */
+    private int nodeLaunchBurst = DEFAULT_NODE_LAUNCH_BURST;
+
+    /**
+     * Script launches per minute admitted on all the nodes, 0 for no limit.
+     */
+    private int globalLaunchRate;
+
+    /**
+     * Script launches admitted at once on all the nodes before the rate applies.
+     */
+    private int globalLaunchBurst = DEFAULT_GLOBAL_LAUNCH_BURST;
+
+    /**
+     * The default {@link PollProcessLimits} of the triggers not setting their own.
+     */
+    private int pollNiceness;
+
+    private boolean pollIdleIo;
+
+    private int pollCpuQuota;
+
+    private int pollMemoryLimit;
+
+    /**
+     * The charset of the Groovy system script files read on the master.
+     */
+    private String systemScriptCharset = DEFAULT_SYSTEM_SCRIPT_CHARSET;
+
+    /**
+     * Runs the pollings of the Groovy system script triggers concurrently, on virtual threads when available.
+     */
+    private boolean groovyConcurrentPolling;
+
+    /**
+     * Groovy trigger pollings running at the same time when they run concurrently, on virtual threads or not.
+     */
+    private int groovyMaxConcurrentPollings = DEFAULT_GROOVY_MAX_CONCURRENT_POLLINGS;
+
+    public ScriptTriggerConfiguration() {
+        load();
+    }
+
+    /**
+     * @return the configuration, or null outside of the master
+     */
+    public static ScriptTriggerConfiguration get() {
+        if (Jenkins.getInstance() == null) {
+            return null;
+        }
+        return GlobalConfiguration.all().get(ScriptTriggerConfiguration.class);
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        return true;
+    }
+
+    public int getOutputHeadSize() {
+        return outputHeadSize;
+    }
+
+    public void setOutputHeadSize(int outputHeadSize) {
+        this.outputHeadSize = outputHeadSize;
+    }
+
+    public int getOutputTailSize() {
+        return outputTailSize;
+    }
+
+    public void setOutputTailSize(int outputTailSize) {
+        this.outputTailSize = Math.max(0, outputTailSize);
+    }
+
+    public int getOutputSpillLimit() {
+        return outputSpillLimit;
+    }
+
+    public void setOutputSpillLimit(int outputSpillLimit) {
+        this.outputSpillLimit = Math.max(0, outputSpillLimit);
+    }
+
+    public int getPollHistoryDays() {
+        return pollHistoryDays;
+    }
+
+    public void setPollHistoryDays(int pollHistoryDays) {
+        this.pollHistoryDays = Math.max(0, pollHistoryDays);
+    }
+
+    public boolean isOutputStreamed() {
+        return outputStreamed;
+    }
+
+    public void setOutputStreamed(boolean outputStreamed) {
+        this.outputStreamed = outputStreamed;
+    }
+
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public void setBreakerThreshold(int breakerThreshold) {
+        this.breakerThreshold = Math.max(0, breakerThreshold);
+    }
+
+    public int getBreakerInitialBackoff() {
+        return breakerInitialBackoff;
+    }
+
+    public void setBreakerInitialBackoff(int breakerInitialBackoff) {
+        this.breakerInitialBackoff = Math.max(1, breakerInitialBackoff);
+    }
+
+    public int getBreakerMaxBackoff() {
+        return breakerMaxBackoff;
+    }
+
+    public void setBreakerMaxBackoff(int breakerMaxBackoff) {
+        this.breakerMaxBackoff = Math.max(1, breakerMaxBackoff);
+    }
+
+    public int getNodeLaunchRate() {
+        return nodeLaunchRate;
+    }
+
+    public void setNodeLaunchRate(int nodeLaunchRate) {
+        this.nodeLaunchRate = Math.max(0, nodeLaunchRate);
+    }
+
+    public int getNodeLaunchBurst() {
+        return nodeLaunchBurst;
+    }
+
+    public void setNodeLaunchBurst(int nodeLaunchBurst) {
+        this.nodeLaunchBurst = Math.max(1, nodeLaunchBurst);
+    }
+
+    public int getGlobalLaunchRate() {
+        return globalLaunchRate;
+    }
+
+    public void setGlobalLaunchRate(int globalLaunchRate) {
+        this.globalLaunchRate = Math.max(0, globalLaunchRate);
+    }
+
+    public int getGlobalLaunchBurst() {
+        return globalLaunchBurst;
+    }
+
+    public void setGlobalLaunchBurst(int globalLaunchBurst) {
+        this.globalLaunchBurst = Math.max(1, globalLaunchBurst);
+    }
+
+    public int getPollNiceness() {
+        return pollNiceness;
+    }
+
+    public void setPollNiceness(int pollNiceness) {
+        this.pollNiceness = Math.max(0, Math.min(19, pollNiceness));
+    }
+
+    public boolean isPollIdleIo() {
+        return pollIdleIo;
+    }
+
+    public void setPollIdleIo(boolean pollIdleIo) {
+        this.pollIdleIo = pollIdleIo;
+    }
+
+    public int getPollCpuQuota() {
+        return pollCpuQuota;
+    }
+
+    public void setPollCpuQuota(int pollCpuQuota) {
+        this.pollCpuQuota = Math.max(0, pollCpuQuota);
+    }
+
+    public int getPollMemoryLimit() {
+        return pollMemoryLimit;
+    }
+
+    public void setPollMemoryLimit(int pollMemoryLimit) {
+        this.pollMemoryLimit = Math.max(0, pollMemoryLimit);
+    }
+
+    public String getSystemScriptCharset() {
+        return systemScriptCharset;
+    }
+
+    public void setSystemScriptCharset(String systemScriptCharset) {
+        systemScriptCharset = Util.fixEmptyAndTrim(systemScriptCharset);
+        this.systemScriptCharset = systemScriptCharset == null ? DEFAULT_SYSTEM_SCRIPT_CHARSET : systemScriptCharset;
+    }
+
+    public boolean isGroovyConcurrentPolling() {
+        return groovyConcurrentPolling;
+    }
+
+    public void setGroovyConcurrentPolling(boolean groovyConcurrentPolling) {
+        this.groovyConcurrentPolling = groovyConcurrentPolling;
+    }
+
+    public int getGroovyMaxConcurrentPollings() {
+        return groovyMaxConcurrentPollings;
+    }
+
+    public void setGroovyMaxConcurrentPollings(int groovyMaxConcurrentPollings) {
+        this.groovyMaxConcurrentPollings = Math.max(1, groovyMaxConcurrentPollings);
+    }
+
+    public FormValidation doCheckSystemScriptCharset(@QueryParameter String value) {
+        value = Util.fixEmptyAndTrim(value);
+        if (value == null) {
+            return FormValidation.ok();
+        }
+        try {
+            Charset.forName(value);
+            return FormValidation.ok();
+        } catch (IllegalArgumentException iae) {
+            return FormValidation.error(String.format("The charset '%s' isn't supported.", value));
+        }
+    }
+
+    /**
+     * @return the charset of the Groovy system script files, the platform charset if the configured one isn't supported
+     */
+    public static Charset getSystemScriptFileCharset() {
+        ScriptTriggerConfiguration configuration = get();
+        String name = configuration == null ? DEFAULT_SYSTEM_SCRIPT_CHARSET : configuration.systemScriptCharset;
+        try {
+            return Charset.forName(name == null ? DEFAULT_SYSTEM_SCRIPT_CHARSET : name);
+        } catch (IllegalArgumentException iae) {
+            return Charset.forName(DEFAULT_SYSTEM_SCRIPT_CHARSET);
+        }
+    }
+
+    public PollProcessLimits getDefaultProcessLimits() {
+        return new PollProcessLimits(pollNiceness, pollIdleIo, pollCpuQuota, pollMemoryLimit);
+    }
+
+    /**
+     * @return true if the output of the scripts run on the nodes is streamed to the master
+     */
+    public static boolean isOutputStreamedOnNodes() {
+        ScriptTriggerConfiguration configuration = get();
+        return configuration != null && configuration.isOutputStreamed();
+    }
+
+    /**
+     * Caps a script output written to the given log according to the global settings.
+     *
+     * @param spillFile the compressed file receiving the omitted output, null to drop it
+     */
+    public static CappedOutputStream capOutput(OutputStream log, File spillFile) {
+        ScriptTriggerConfiguration configuration = get();
+        int headSize = configuration == null ? DEFAULT_OUTPUT_HEAD_SIZE : configuration.getOutputHeadSize();
+        int tailSize = configuration == null ? DEFAULT_OUTPUT_TAIL_SIZE : configuration.getOutputTailSize();
+        int spillLimit = configuration == null ? DEFAULT_OUTPUT_SPILL_LIMIT : configuration.getOutputSpillLimit();
+        if (headSize < 0) {
+            return new CappedOutputStream(log, -1, 0, null, 0);
+        }
+        return new CappedOutputStream(log, headSize * 1024L, tailSize * 1024, spillFile, spillLimit * 1024L * 1024L);
+    }
+
+    @SuppressWarnings("unused")
+    public FormValidation doCheckOutputTailSize(@QueryParameter int value) {
+        if (value < 0) {
+            return FormValidation.error("The size must be a positive number of kilobytes.");
+        }
+        return FormValidation.ok();
+    }
+
+    @SuppressWarnings("unused")
+    public FormValidation doCheckOutputSpillLimit(@QueryParameter int value) {
+        if (value < 0) {
+            return FormValidation.error("The limit must be a positive number of megabytes.");
+        }
+        return FormValidation.ok();
+    }
+}
@@ -24,9 +24,11 @@ package org.jenkinsci.plugins.scripttrigger;
 
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.Hudson;
 import hudson.model.Node;
 import hudson.model.TaskListener;
 import hudson.remoting.Callable;
+import hudson.remoting.RemoteOutputStream;
 import hudson.remoting.VirtualChannel;
 import hudson.tasks.BatchFile;
 import hudson.tasks.CommandInterpreter;
@@ -35,6 +37,8 @@ import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
 import java.io.*;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Gregory Boissinot
@@ -43,41 +47,198 @@ public class ScriptTriggerExecutor implements Serializable {
 
     protected XTriggerLog log;
 
+    protected static final int OUTPUT_CHUNK_SIZE = 64 * 1024;
+
+    protected transient PollRecorder recorder;
+
+    /**
+     * The compressed file receiving the script output omitted from the polling log.
+     */
+    private transient File outputSpillFile;
+
+    /**
+     * The priority and resource limits of the launched script processes, none if null.
+     */
+    private transient PollProcessLimits processLimits;
+
+    private transient String outputCause;
+
+    private transient String outputDescription;
+
     public ScriptTriggerExecutor(XTriggerLog log) {
+        this(log, PollRecorder.NONE);
+    }
+
+    public ScriptTriggerExecutor(XTriggerLog log, PollRecorder recorder) {
         this.log = log;
+        this.recorder = recorder;
+    }
+
+    /**
+     * Records a polling phase started at the given {@link System#nanoTime()}.
+     * Does nothing on a polling node, where the recorder isn't available.
+     */
+    protected void record(PollPhase phase, long startNanos) {
+        if (recorder != null) {
+            recorder.record(phase, startNanos);
+        }
+    }
+
+    /**
+     * Waits for the {@link LaunchRateLimiter} to admit a script launch on the polling node.
+     */
+    protected void awaitLaunch(NodeExecutionContext context) throws InterruptedException {
+        long waitStart = System.nanoTime();
+        long waited = LaunchRateLimiter.getInstance().acquire(context.getNodeName());
+        if (waited > 0) {
+            log.info(String.format("Waited %d ms for the launch rate limit of the node '%s'.",
+                    TimeUnit.NANOSECONDS.toMillis(waited), context.getNodeName()));
+        }
+        record(PollPhase.LAUNCH_WAIT, waitStart);
+    }
+
+    public void setProcessLimits(PollProcessLimits processLimits) {
+        this.processLimits = processLimits;
+    }
+
+    public void setOutputSpillFile(File outputSpillFile) {
+        this.outputSpillFile = outputSpillFile;
+    }
+
+    /**
+     * @return a sink capping the script output written to the polling log, see {@link ScriptTriggerConfiguration}
+     */
+    protected ScriptOutputSink newOutputSink() {
+        return new ScriptOutputSink(ScriptTriggerConfiguration.capOutput(log.getListener().getLogger(), outputSpillFile));
+    }
+
+    /**
+     * Closes the given sink, writing the end of the output to the log, and keeps the markers printed by the script.
+     *
+     * @param scriptFailed true if the script failed: a failure to close the sink is then logged
+     *                     instead of replacing the failure of the script
+     */
+    protected void closeOutputSink(ScriptOutputSink sink, boolean scriptFailed) throws ScriptTriggerException {
+        try {
+            sink.close();
+        } catch (IOException ioe) {
+            if (!scriptFailed) {
+                throw new ScriptTriggerException(ioe);
+            }
+            log.error("Failed to close the script output: " + ioe.getMessage());
+        }
+        outputCause = sink.getCause();
+        outputDescription = sink.getDescription();
+    }
+
+    /**
+     * @return the <cause></cause> value printed by the latest script, null if none
+     */
+    public String getOutputCause() {
+        return outputCause;
+    }
+
+    /**
+     * @return the <description></description> value printed by the latest script, null if none
+     */
+    public String getOutputDescription() {
+        return outputDescription;
     }
 
     public int executeScriptAndGetExitCode(Node executingNode, String scriptContent, Map<String, String> envVars) throws ScriptTriggerException {
+        return executeScriptAndGetResult(executingNode, scriptContent, envVars).getExitCode();
+    }
+
+    public ScriptExecutionResult executeScriptAndGetResult(Node executingNode, String scriptContent, Map<String, String> envVars) throws ScriptTriggerException {
+        return executeScriptAndGetResult(NodeExecutionContext.require(executingNode), scriptContent, envVars);
+    }
+
+    public ScriptExecutionResult executeScriptAndGetResult(NodeExecutionContext context, String scriptContent, Map<String, String> envVars) throws ScriptTriggerException {
 
         if (scriptContent == null) {
             throw new NullPointerException("A scriptContent object must be set.");
         }
 
-        return executeScript(executingNode, scriptContent, envVars);
+        ScriptOutputSink sink = newOutputSink();
+        int exitCode;
+        boolean executed = false;
+        try {
+            exitCode = executeScript(context, scriptContent, envVars, sink);
+            executed = true;
+        } finally {
+            closeOutputSink(sink, !executed);
+        }
+        for (String name : sink.getTruncatedParameters()) {
+            log.error(String.format("The line of the parameter '%s' is longer than 8 KB. The parameter is ignored.", name));
+        }
+        return new ScriptExecutionResult(exitCode, sink.getDigest(), sink.getCause(), sink.getDescription(), sink.getParameters());
     }
 
 
+    /**
+     * Runs the script without blocking the caller, see {@link AsyncScriptExecutor}.
+     * The output markers of the executor are those of its latest script: use an executor per concurrent script
+     * to read them, or read them from the result.
+     */
+    public Future<ScriptExecutionResult> executeScriptAndGetResultAsync(final NodeExecutionContext context, final String scriptContent, final Map<String, String> envVars) throws ScriptTriggerException {
+        return AsyncScriptExecutor.getInstance().submit(new java.util.concurrent.Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() throws ScriptTriggerException {
+                return executeScriptAndGetResult(context, scriptContent, envVars);
+            }
+        });
+    }
+
+    public Future<Integer> executeScriptAndGetExitCodeAsync(final Node executingNode, final String scriptContent, final Map<String, String> envVars) throws ScriptTriggerException {
+        return AsyncScriptExecutor.getInstance().submit(new java.util.concurrent.Callable<Integer>() {
+            public Integer call() throws ScriptTriggerException {
+                return executeScriptAndGetExitCode(executingNode, scriptContent, envVars);
+            }
+        });
+    }
+
+    public Future<ScriptExecutionResult> executeScriptPathAndGetResultAsync(final NodeExecutionContext context, final String scriptFilePath, final Map<String, String> envVars) throws ScriptTriggerException {
+        return AsyncScriptExecutor.getInstance().submit(new java.util.concurrent.Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() throws ScriptTriggerException {
+                return executeScriptPathAndGetResult(context, scriptFilePath, envVars);
+            }
+        });
+    }
+
     public int executeScriptPathAndGetExitCode(Node executingNode, String scriptFilePath, Map<String, String> envVars) throws ScriptTriggerException {
+        return executeScriptPathAndGetResult(executingNode, scriptFilePath, envVars).getExitCode();
+    }
+
+    public ScriptExecutionResult executeScriptPathAndGetResult(Node executingNode, String scriptFilePath, Map<String, String> envVars) throws ScriptTriggerException {
+        return executeScriptPathAndGetResult(NodeExecutionContext.require(executingNode), scriptFilePath, envVars);
+    }
+
+    public ScriptExecutionResult executeScriptPathAndGetResult(NodeExecutionContext context, String scriptFilePath, Map<String, String> envVars) throws ScriptTriggerException {
 
         if (scriptFilePath == null) {
             throw new NullPointerException("The scriptFilePath object must be set.");
         }
 
-        if (!existsScript(executingNode, scriptFilePath)) {
+        long transferStart = System.nanoTime();
+        if (!existsScript(context, scriptFilePath)) {
             throw new ScriptTriggerException(String.format("The script file path '%s' doesn't exist.", scriptFilePath));
         }
 
-        String scriptContent = getStringContent(executingNode, scriptFilePath);
-        return executeScriptAndGetExitCode(executingNode, scriptContent, envVars);
+        String scriptContent = getStringContent(context.getRootPath(), scriptFilePath);
+        record(PollPhase.SCRIPT_TRANSFER, transferStart);
+        return executeScriptAndGetResult(context, scriptContent, envVars);
     }
 
 
     protected String getStringContent(Node executingNode, final String filePath) throws ScriptTriggerException {
+        return getStringContent(NodeExecutionContext.require(executingNode).getRootPath(), filePath);
+    }
+
+    protected String getStringContent(FilePath rootPath, final String filePath) throws ScriptTriggerException {
 
         assert filePath != null;
 
         try {
-            return executingNode.getRootPath().act(new FilePath.FileCallable<String>() {
+            return rootPath.act(new FilePath.FileCallable<String>() {
 
                 public String invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
                     StringBuffer content = new StringBuffer();
@@ -97,37 +258,39 @@ public class ScriptTriggerExecutor implements Serializable {
         }
     }
 
-    private int executeScript(final Node executingNode, final String scriptContent, final Map<String, String> envVars) throws ScriptTriggerException {
+    private int executeScript(NodeExecutionContext context, final String scriptContent, final Map<String, String> envVars, OutputStream output) throws ScriptTriggerException {
 
         assert scriptContent != null;
 
         log.info(String.format("Evaluating the script: \n %s", scriptContent));
+        final FilePath rootPath = context.getRootPath();
         FilePath tmpFile = null;
         try {
 
-            boolean isUnix = executingNode.getRootPath().act(new Callable<Boolean, ScriptTriggerException>() {
-                public Boolean call() throws ScriptTriggerException {
-                    return File.pathSeparatorChar == ':';
-                }
-            });
-
+            NodePlatform platform = context.getPlatform();
             CommandInterpreter batchRunner;
-            if (isUnix) {
+            if (platform.isUnix()) {
                 batchRunner = new Shell(scriptContent);
             } else {
                 batchRunner = new BatchFile(scriptContent);
             }
-            tmpFile = batchRunner.createScriptFile(executingNode.getRootPath());
-            final String[] cmd = batchRunner.buildCommandLine(tmpFile);
+            long transferStart = System.nanoTime();
+            tmpFile = batchRunner.createScriptFile(rootPath);
+            String[] commandLine = buildCommandLine(batchRunner, platform, scriptContent, tmpFile);
+            final String[] cmd = processLimits == null ? commandLine : processLimits.wrap(commandLine, platform, log);
+            record(PollPhase.SCRIPT_TRANSFER, transferStart);
 
-            final FilePath rootPath = executingNode.getRootPath();
-            if (rootPath == null) {
-                throw new ScriptTriggerException("The node is offline.");
-            }
-            return rootPath.act(new FilePath.FileCallable<Integer>() {
+            final OutputStream remoteOutput = new RemoteOutputStream(output);
+            final boolean streaming = ScriptTriggerConfiguration.isOutputStreamedOnNodes();
+            awaitLaunch(context);
+            long launchStart = System.nanoTime();
+            int exitCode = rootPath.act(new FilePath.FileCallable<Integer>() {
                 public Integer invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+                    OutputStream stdout = toNodeOutput(remoteOutput, streaming);
                     try {
-                        return getLocalLauncher(log.getListener()).launch().cmds(cmd).envs(envVars).stdout(log.getListener()).pwd(rootPath).join();
+                        int exitCode = getLocalLauncher(log.getListener()).launch().cmds(cmd).envs(envVars).stdout(stdout).pwd(rootPath).join();
+                        stdout.flush();
+                        return exitCode;
                     } catch (InterruptedException ie) {
                         throw new ScriptTriggerException(ie);
                     } catch (IOException ioe) {
@@ -135,6 +298,11 @@ public class ScriptTriggerExecutor implements Serializable {
                     }
                 }
             });
+
+            //Wait for the remaining output sent by the node before reading the output digest
+            context.syncIO();
+            record(PollPhase.LAUNCH, launchStart);
+            return exitCode;
         } catch (InterruptedException ie) {
             throw new ScriptTriggerException(ie);
         } catch (IOException ioe) {
@@ -152,13 +320,43 @@ public class ScriptTriggerExecutor implements Serializable {
         }
     }
 
+    /**
+     * Wraps the stream sending the output of a script from the node to the master.
+     * Unless the output is streamed, it is sent in chunks of {@link #OUTPUT_CHUNK_SIZE} bytes
+     * and on the final flush, instead of one remoting packet per write of the script.
+     */
+    protected static OutputStream toNodeOutput(OutputStream remoteOutput, boolean streaming) {
+        if (streaming) {
+            return remoteOutput;
+        }
+        return new BufferedOutputStream(remoteOutput, OUTPUT_CHUNK_SIZE);
+    }
+
+    /**
+     * Builds the same command line as the interpreter, without asking the node for its default shell.
+     */
+    private static String[] buildCommandLine(CommandInterpreter batchRunner, NodePlatform platform, String scriptContent, FilePath scriptFile) {
+        if (!(batchRunner instanceof Shell) || scriptContent.startsWith("#!")) {
+            return batchRunner.buildCommandLine(scriptFile);
+        }
+        String shell = Hudson.getInstance().getDescriptorByType(Shell.DescriptorImpl.class).getShell();
+        if (shell == null) {
+            shell = platform.getDefaultShell();
+        }
+        return new String[]{shell, "-xe", scriptFile.getRemote()};
+    }
+
     private Launcher getLocalLauncher(TaskListener listener) throws ScriptTriggerException {
         return new Launcher.LocalLauncher(listener);
     }
 
     protected boolean existsScript(Node executingNode, final String path) throws ScriptTriggerException {
+        return existsScript(NodeExecutionContext.require(executingNode), path);
+    }
+
+    protected boolean existsScript(NodeExecutionContext context, final String path) throws ScriptTriggerException {
         try {
-            return executingNode.getRootPath().act(new Callable<Boolean, ScriptTriggerException>() {
+            return context.getRootPath().act(new Callable<Boolean, ScriptTriggerException>() {
                 public Boolean call() throws ScriptTriggerException {
                     File f = new File(path);
                     if (!f.exists()) {
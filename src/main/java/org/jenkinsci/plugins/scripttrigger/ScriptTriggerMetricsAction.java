@@ -0,0 +1,125 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Api;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Exposes the polling statistics of all the script triggers, as a page and through the remote API.
+ */
+@Extension
+@ExportedBean
+public class ScriptTriggerMetricsAction implements RootAction {
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "ScriptTrigger Metrics";
+    }
+
+    public String getUrlName() {
+        return "scripttrigger-metrics";
+    }
+
+    @Exported
+    public List<PollMetrics> getJobs() {
+        return PollMetricsRegistry.getInstance().getAllJobMetrics();
+    }
+
+    @Exported
+    public List<PollMetrics> getNodes() {
+        return PollMetricsRegistry.getInstance().getAllNodeMetrics();
+    }
+
+    @SuppressWarnings("unused")
+    public PollPhase[] getPhases() {
+        return PollPhase.values();
+    }
+
+    @SuppressWarnings("unused")
+    public Api getApi() {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        return new Api(this);
+    }
+
+    /**
+     * Writes the polling history of a job as CSV, optionally restricted to a time range in milliseconds.
+     */
+    @SuppressWarnings("unused")
+    public void doHistory(StaplerResponse rsp, @QueryParameter String job, @QueryParameter String from, @QueryParameter String to) throws IOException {
+        Job<?, ?> item = job == null ? null : Jenkins.getInstance().getItemByFullName(job, Job.class);
+        if (item == null) {
+            rsp.sendError(StaplerResponse.SC_NOT_FOUND);
+            return;
+        }
+        item.checkPermission(Item.READ);
+
+        from = Util.fixEmptyAndTrim(from);
+        to = Util.fixEmptyAndTrim(to);
+        long fromMillis;
+        long toMillis;
+        try {
+            fromMillis = from == null ? 0 : Long.parseLong(from);
+            toMillis = to == null ? Long.MAX_VALUE : Long.parseLong(to);
+        } catch (NumberFormatException nfe) {
+            rsp.sendError(StaplerResponse.SC_BAD_REQUEST, "The 'from' and 'to' parameters must be times in milliseconds.");
+            return;
+        }
+        List<PollHistoryRecord> records = PollHistory.of(item.getRootDir()).read(fromMillis, toMillis);
+
+        rsp.setContentType("text/csv;charset=UTF-8");
+        PrintWriter writer = rsp.getWriter();
+        writer.println("timestamp,node,durationMillis,outcome,exitCode,cause");
+        for (PollHistoryRecord record : records) {
+            writer.print(record.getTimestamp());
+            writer.print(',');
+            writer.print(StringEscapeUtils.escapeCsv(record.getNodeName()));
+            writer.print(',');
+            writer.print(record.getDurationMillis());
+            writer.print(',');
+            writer.print(record.getOutcome());
+            writer.print(',');
+            writer.print(record.getExitCode() != null ? record.getExitCode().toString() : "");
+            writer.print(',');
+            writer.println(record.getCause() != null ? StringEscapeUtils.escapeCsv(record.getCause()) : "");
+        }
+        writer.flush();
+    }
+}
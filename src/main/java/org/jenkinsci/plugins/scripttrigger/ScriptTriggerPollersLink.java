@@ -0,0 +1,136 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.ManagementLink;
+import hudson.triggers.Trigger;
+import jenkins.model.Jenkins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lists the latest polling of every job polled by a script trigger, the slowest first.
+ */
+@Extension
+public class ScriptTriggerPollersLink extends ManagementLink {
+
+    @Override
+    public String getIconFileName() {
+        return "clipboard.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "ScriptTrigger Pollers";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Latest polling outcome, duration and node of every job polled by a script trigger.";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "scripttrigger-pollers";
+    }
+
+    @SuppressWarnings("unused")
+    public List<Poller> getPollers() {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        Map<String, PollResult> latestResults = PollResultRing.getInstance().getLatestResultsByJob();
+        List<Poller> pollers = new ArrayList<Poller>();
+        for (AbstractProject<?, ?> project : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+            for (Trigger<?> trigger : project.getTriggers().values()) {
+                if (trigger instanceof AbstractTrigger) {
+                    String jobName = project.getFullName();
+                    PollMetrics metrics = PollMetricsRegistry.getInstance().findJobMetrics(jobName);
+                    pollers.add(new Poller(project, trigger.getDescriptor().getDisplayName(), latestResults.get(jobName), metrics));
+                }
+            }
+        }
+
+        Collections.sort(pollers, new Comparator<Poller>() {
+            public int compare(Poller p1, Poller p2) {
+                long d1 = p1.getDurationMillis();
+                long d2 = p2.getDurationMillis();
+                return d1 > d2 ? -1 : (d1 == d2 ? p1.getProject().getFullName().compareTo(p2.getProject().getFullName()) : 1);
+            }
+        });
+        return pollers;
+    }
+
+    public static final class Poller {
+
+        private final AbstractProject<?, ?> project;
+
+        private final String triggerName;
+
+        private final PollResult latestResult;
+
+        private final PollMetrics metrics;
+
+        private Poller(AbstractProject<?, ?> project, String triggerName, PollResult latestResult, PollMetrics metrics) {
+            this.project = project;
+            this.triggerName = triggerName;
+            this.latestResult = latestResult;
+            this.metrics = metrics;
+        }
+
+        public AbstractProject<?, ?> getProject() {
+            return project;
+        }
+
+        public String getTriggerName() {
+            return triggerName;
+        }
+
+        /**
+         * @return the latest polling result still in memory, null if any
+         */
+        public PollResult getLatestResult() {
+            return latestResult;
+        }
+
+        /**
+         * @return the duration of the latest polling, -1 if unknown
+         */
+        public long getDurationMillis() {
+            return latestResult == null ? -1 : latestResult.getDurationMillis();
+        }
+
+        public long getP99Millis() {
+            return metrics == null ? 0 : metrics.getTotal().getP99Millis();
+        }
+
+        public long getPollCount() {
+            return metrics == null ? 0 : metrics.getTotal().getCount();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersDefinitionProperty;
+import org.jenkinsci.plugins.parameterizedscheduler.ParameterizedStaplerRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the values produced by a polling to the parameters of the triggered build.
+ */
+public final class TriggerParameters {
+
+    private TriggerParameters() {
+    }
+
+    /**
+     * Creates a value for each parameter definition of the job, from the given values or from the parameter default value.
+     *
+     * @param paramDefProp the job parameter definitions, may be null
+     * @param values       the values by parameter name
+     */
+    public static List<ParameterValue> toParameterValues(ParametersDefinitionProperty paramDefProp, Map<?, ?> values) {
+        List<ParameterValue> parameterValueList = new ArrayList<ParameterValue>();
+        if (paramDefProp == null) {
+            return parameterValueList;
+        }
+
+        /* Scan for all parameter with an associated default values */
+        for (ParameterDefinition paramDefinition : paramDefProp.getParameterDefinitions()) {
+            ParameterValue defaultValue = paramDefinition.getDefaultParameterValue();
+
+            if (values.containsKey(paramDefinition.getName())) {
+                ParameterizedStaplerRequest request = new ParameterizedStaplerRequest(
+                        String.valueOf(values.get(paramDefinition.getName())));
+                parameterValueList.add(paramDefinition.createValue(request));
+            } else if (defaultValue != null)
+                parameterValueList.add(defaultValue);
+        }
+        return parameterValueList;
+    }
+}
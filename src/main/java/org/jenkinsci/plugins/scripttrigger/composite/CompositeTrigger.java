@@ -0,0 +1,355 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import antlr.ANTLRException;
+import hudson.Extension;
+import hudson.Util;
+import hudson.console.AnnotatedLargeText;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.Node;
+import hudson.util.ListBoxModel;
+import org.apache.commons.jelly.XMLOutput;
+import org.jenkinsci.lib.envinject.EnvInjectException;
+import org.jenkinsci.lib.envinject.service.EnvVarsResolver;
+import org.jenkinsci.lib.xtrigger.XTriggerDescriptor;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.scripttrigger.AbstractTrigger;
+import org.jenkinsci.plugins.scripttrigger.CircuitBreaker;
+import org.jenkinsci.plugins.scripttrigger.LabelRestrictionClass;
+import org.jenkinsci.plugins.scripttrigger.NodeExecutionContext;
+import org.jenkinsci.plugins.scripttrigger.PollPhase;
+import org.jenkinsci.plugins.scripttrigger.PollRecorder;
+import org.jenkinsci.plugins.scripttrigger.PollState;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls with several shell, Groovy and probe conditions combined with 'all' or 'any'.
+ * The conditions are evaluated in the order of their expected cost, learned from the previous pollings:
+ * the fast conditions most likely to decide the outcome run first, and the evaluation stops as soon as
+ * the outcome is known. The statistics are kept in the {@link PollState}, by condition configuration.
+ */
+public class CompositeTrigger extends AbstractTrigger {
+
+    public enum Operator {
+        ALL("All the conditions are met"),
+        ANY("Any condition is met");
+
+        private final String displayName;
+
+        Operator(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private static final String STATISTICS_PREFIX = "condition.";
+
+    private final List<Condition> conditions;
+
+    private final Operator operator;
+
+    @DataBoundConstructor
+    @SuppressWarnings("unused")
+    public CompositeTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, List<Condition> conditions, String operator) throws ANTLRException {
+        super(cronTabSpec, (labelRestriction == null) ? false : true, (labelRestriction == null) ? null : labelRestriction.getTriggerLabel(), enableConcurrentBuild);
+        this.conditions = conditions == null ? new ArrayList<Condition>() : new ArrayList<Condition>(conditions);
+        this.operator = operator == null ? Operator.ALL : Operator.valueOf(operator);
+    }
+
+    @SuppressWarnings("unused")
+    public List<Condition> getConditions() {
+        return conditions == null ? Collections.<Condition>emptyList() : Collections.unmodifiableList(conditions);
+    }
+
+    @SuppressWarnings("unused")
+    public String getOperator() {
+        return getOperatorValue().name();
+    }
+
+    private Operator getOperatorValue() {
+        return operator == null ? Operator.ALL : operator;
+    }
+
+    @Override
+    public Collection<? extends Action> getProjectActions() {
+        CompositeTriggerAction action = new InternalCompositeTriggerAction(getDescriptor().getDisplayName());
+        return Collections.singleton(action);
+    }
+
+    @Override
+    protected File getLogFile() {
+        return new File(job.getRootDir(), "compositeTrigger-polling.log");
+    }
+
+    @Override
+    protected File getStateFile() {
+        return new File(job.getRootDir(), "compositeTrigger-state.xml");
+    }
+
+    @Override
+    protected File getOutputSpillFile() {
+        return new File(job.getRootDir(), "compositeTrigger-output.gz");
+    }
+
+    @Override
+    protected String getDefaultMessageCause() {
+        return "The composite condition is met";
+    }
+
+    @Override
+    protected boolean checkIfModified(Node pollingNode, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
+        List<Condition> conditions = getConditions();
+        if (conditions.isEmpty()) {
+            log.info("No condition is configured.");
+            return false;
+        }
+
+        NodeExecutionContext context = NodeExecutionContext.of(pollingNode);
+        if (context == null) {
+            log.info(String.format("The node '%s' is offline. Skipping the polling.", getNodeName(pollingNode)));
+            return false;
+        }
+
+        AbstractProject proj = (AbstractProject) job;
+        long envStart = System.nanoTime();
+        Map<String, String> envVars;
+        try {
+            envVars = new EnvVarsResolver().getPollingEnvVars(proj, pollingNode);
+        } catch (EnvInjectException e) {
+            throw new ScriptTriggerException(e);
+        } finally {
+            recorder.record(PollPhase.ENV_RESOLUTION, envStart);
+        }
+
+        ConditionContext conditionContext = new ConditionContext(proj, context, envVars, log, recorder, getOutputSpillFile(), getPollState());
+        Operator operator = getOperatorValue();
+        boolean decidedWhenMet = operator == Operator.ANY;
+        List<String> statisticsNames = getStatisticsNames(conditions);
+        ConditionStatistics[] statistics = getStatistics(statisticsNames);
+        List<Integer> order = getEvaluationOrder(statistics, decidedWhenMet);
+        log.info(String.format("Evaluating the conditions in the order %s, stopping as soon as %s.", toDisplayOrder(order),
+                decidedWhenMet ? "one of them is met" : "one of them is not met"));
+
+        boolean outcome = !decidedWhenMet;
+        String cause = null;
+        int evaluated = 0;
+        for (int index : order) {
+            Condition condition = conditions.get(index);
+            log.info(String.format("Condition %d: %s", index + 1, condition.getDescriptor().getDisplayName()));
+            long start = System.nanoTime();
+            ConditionResult result = condition.evaluate(conditionContext);
+            statistics[index].record(System.nanoTime() - start, result.isMet());
+            evaluated++;
+            log.info(String.format("Condition %d is %s.", index + 1, result.isMet() ? "met" : "not met"));
+            if (result.isMet() && cause == null) {
+                cause = result.getCause();
+            }
+            if (result.isMet() == decidedWhenMet) {
+                outcome = decidedWhenMet;
+                break;
+            }
+        }
+        if (evaluated < order.size()) {
+            log.info(String.format("Skipped %d conditions not changing the outcome.", order.size() - evaluated));
+            for (int index : order.subList(evaluated, order.size())) {
+                statistics[index].recordSkipped();
+            }
+        }
+        saveStatistics(statisticsNames, statistics);
+        retainConditionStates(conditions);
+
+        if (outcome) {
+            recordOutputMarkers(cause, null);
+        }
+        return outcome;
+    }
+
+    /**
+     * @return the names of the statistics of the given conditions in the {@link PollState}, derived from their
+     * configuration so the statistics follow their condition when the conditions are reordered
+     * and are learned again when the condition changes
+     */
+    private static List<String> getStatisticsNames(List<Condition> conditions) {
+        List<String> names = new ArrayList<String>(conditions.size());
+        for (Condition condition : conditions) {
+            names.add(STATISTICS_PREFIX + PollState.keyOf(condition));
+        }
+        return names;
+    }
+
+    private ConditionStatistics[] getStatistics(List<String> names) {
+        PollState state = getPollState();
+        ConditionStatistics[] statistics = new ConditionStatistics[names.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i] = ConditionStatistics.parse(state.getValue(names.get(i)));
+        }
+        return statistics;
+    }
+
+    /**
+     * Keeps the statistics in the {@link PollState}, saved at the end of the polling.
+     * The statistics of the removed conditions are dropped.
+     */
+    private void saveStatistics(List<String> names, ConditionStatistics[] statistics) {
+        PollState state = getPollState();
+        for (int i = 0; i < statistics.length; i++) {
+            state.setValue(names.get(i), statistics[i].format());
+        }
+        state.retainValues(STATISTICS_PREFIX, names);
+    }
+
+    /**
+     * Drops the states of the removed conditions, see {@link ConditionContext#setState}.
+     */
+    private void retainConditionStates(List<Condition> conditions) {
+        List<String> names = new ArrayList<String>(conditions.size());
+        for (Condition condition : conditions) {
+            names.add(ConditionContext.getStateName(condition));
+        }
+        getPollState().retainValues(ConditionContext.STATE_PREFIX, names);
+    }
+
+    /**
+     * @return the condition indexes by increasing expected cost, the configured order between equal costs
+     */
+    private static List<Integer> getEvaluationOrder(final ConditionStatistics[] statistics, final boolean decidedWhenMet) {
+        List<Integer> order = new ArrayList<Integer>(statistics.length);
+        final double[] costs = new double[statistics.length];
+        for (int i = 0; i < statistics.length; i++) {
+            order.add(i);
+            costs[i] = statistics[i].getCost(decidedWhenMet);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(costs[i1], costs[i2]);
+            }
+        });
+        return order;
+    }
+
+    private static String toDisplayOrder(List<Integer> order) {
+        List<Integer> displayOrder = new ArrayList<Integer>(order.size());
+        for (int index : order) {
+            displayOrder.add(index + 1);
+        }
+        return displayOrder.toString();
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class CompositeTriggerDescriptor extends XTriggerDescriptor {
+
+        @Override
+        public boolean isApplicable(Item item) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "[ScriptTrigger] - Poll with composite conditions";
+        }
+
+        @Override
+        public String getHelpFile() {
+            return "/plugin/scripttrigger/help-composite.html";
+        }
+
+        public List<ConditionDescriptor> getConditionDescriptors() {
+            return Condition.all();
+        }
+
+        public ListBoxModel doFillOperatorItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (Operator operator : Operator.values()) {
+                items.add(operator.getDisplayName(), operator.name());
+            }
+            return items;
+        }
+    }
+
+    public final class InternalCompositeTriggerAction extends CompositeTriggerAction {
+
+        private transient String actionTitle;
+
+        public InternalCompositeTriggerAction(String actionTitle) {
+            this.actionTitle = actionTitle;
+        }
+
+        @SuppressWarnings("unused")
+        public AbstractProject<?, ?> getOwner() {
+            return (AbstractProject) job;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "CompositeTrigger Log";
+        }
+
+        @Override
+        public String getUrlName() {
+            return "compositeTriggerPollLog";
+        }
+
+        @Override
+        public String getIconFileName() {
+            return "clipboard.gif";
+        }
+
+        @SuppressWarnings("unused")
+        public String getLabel() {
+            return actionTitle;
+        }
+
+        @SuppressWarnings("unused")
+        public CircuitBreaker getCircuitBreaker() {
+            return CompositeTrigger.this.getCircuitBreaker();
+        }
+
+        @SuppressWarnings("unused")
+        public String getLog() throws IOException {
+            return Util.loadFile(getLogFile());
+        }
+
+        @SuppressWarnings("unused")
+        public void writeLogTo(XMLOutput out) throws IOException {
+            new AnnotatedLargeText<InternalCompositeTriggerAction>(getLogFile(), Charset.defaultCharset(), true, this).writeHtmlTo(0, out.asWriter());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import hudson.model.AbstractProject;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.scripttrigger.NodeExecutionContext;
+import org.jenkinsci.plugins.scripttrigger.PollRecorder;
+import org.jenkinsci.plugins.scripttrigger.PollState;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * What a {@link Condition} needs from the polling of its {@link CompositeTrigger}.
+ */
+public class ConditionContext {
+
+    static final String STATE_PREFIX = "conditionState.";
+
+    private final AbstractProject job;
+
+    private final NodeExecutionContext node;
+
+    private final Map<String, String> envVars;
+
+    private final XTriggerLog log;
+
+    private final PollRecorder recorder;
+
+    private final File outputSpillFile;
+
+    private final PollState pollState;
+
+    ConditionContext(AbstractProject job, NodeExecutionContext node, Map<String, String> envVars, XTriggerLog log, PollRecorder recorder, File outputSpillFile, PollState pollState) {
+        this.job = job;
+        this.node = node;
+        this.envVars = envVars;
+        this.log = log;
+        this.recorder = recorder;
+        this.outputSpillFile = outputSpillFile;
+        this.pollState = pollState;
+    }
+
+    public AbstractProject getJob() {
+        return job;
+    }
+
+    public NodeExecutionContext getNode() {
+        return node;
+    }
+
+    public Map<String, String> getEnvVars() {
+        return envVars;
+    }
+
+    public XTriggerLog getLog() {
+        return log;
+    }
+
+    public PollRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * @return the compressed file receiving the script output omitted from the polling log
+     */
+    public File getOutputSpillFile() {
+        return outputSpillFile;
+    }
+
+    /**
+     * @return the state kept for the given condition in the {@link PollState} of the trigger, null if none
+     */
+    public String getState(Condition condition) {
+        return pollState.getValue(getStateName(condition));
+    }
+
+    /**
+     * Keeps the state of the given condition in the {@link PollState} of the trigger, saved at the end of the polling.
+     * The state is named after the configuration of the condition, so it follows the condition when the conditions
+     * are reordered and is dropped when the condition changes.
+     *
+     * @param state the state, null to remove it
+     */
+    public void setState(Condition condition, String state) {
+        pollState.setValue(getStateName(condition), state);
+    }
+
+    static String getStateName(Condition condition) {
+        return STATE_PREFIX + PollState.keyOf(condition);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import java.util.Locale;
+
+/**
+ * The observed latency and selectivity of a {@link Condition}, ordering the evaluations of a {@link CompositeTrigger}.
+ * The statistics are kept in the poll state of the trigger as a string, see {@link #parse(String)} and {@link #format()}.
+ */
+final class ConditionStatistics {
+
+    /**
+     * Weight of the latest evaluation in the average latency.
+     */
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    /**
+     * Weight kept by the previous evaluations in the selectivity at each evaluation,
+     * so the selectivity follows a condition whose behavior changes.
+     */
+    private static final double SELECTIVITY_DECAY = 0.9;
+
+    /**
+     * Factor applied to the cost at each polling skipping the condition, so a skipped condition is evaluated again
+     * after a few pollings and its statistics don't stay frozen on outdated values.
+     */
+    private static final double SKIP_DECAY = 0.8;
+
+    private double averageNanos;
+
+    private double evaluations;
+
+    private double metCount;
+
+    private int skips;
+
+    synchronized void record(long nanos, boolean met) {
+        averageNanos = evaluations == 0 ? nanos : LATENCY_WEIGHT * nanos + (1 - LATENCY_WEIGHT) * averageNanos;
+        evaluations = evaluations * SELECTIVITY_DECAY + 1;
+        metCount = metCount * SELECTIVITY_DECAY + (met ? 1 : 0);
+        skips = 0;
+    }
+
+    /**
+     * Records a polling whose outcome was known before evaluating the condition.
+     */
+    synchronized void recordSkipped() {
+        if (skips < Integer.MAX_VALUE) {
+            skips++;
+        }
+    }
+
+    /**
+     * The expected cost of evaluating the condition before knowing the outcome of the composite:
+     * its latency divided by the probability that it decides the outcome, met for 'any', not met for 'all'.
+     * The probability is smoothed so that a condition without history isn't skipped forever,
+     * and the cost decreases with the pollings skipping the condition.
+     * A condition never evaluated costs 0 and is evaluated first to learn its latency.
+     */
+    synchronized double getCost(boolean decidedWhenMet) {
+        if (evaluations == 0) {
+            return 0;
+        }
+        double metProbability = (metCount + 1.0) / (evaluations + 2.0);
+        double decisiveProbability = decidedWhenMet ? metProbability : 1 - metProbability;
+        return averageNanos / decisiveProbability * Math.pow(SKIP_DECAY, skips);
+    }
+
+    synchronized int getSkips() {
+        return skips;
+    }
+
+    /**
+     * @return the statistics in the format read by {@link #parse(String)}
+     */
+    synchronized String format() {
+        return String.format(Locale.ENGLISH, "%f %f %f %d", averageNanos, evaluations, metCount, skips);
+    }
+
+    /**
+     * @return the statistics written by {@link #format()}, empty statistics if the value is null or invalid
+     */
+    static ConditionStatistics parse(String value) {
+        ConditionStatistics statistics = new ConditionStatistics();
+        if (value == null) {
+            return statistics;
+        }
+        String[] fields = value.trim().split(" ");
+        if (fields.length != 4) {
+            return statistics;
+        }
+        try {
+            double averageNanos = Double.parseDouble(fields[0]);
+            double evaluations = Double.parseDouble(fields[1]);
+            double metCount = Double.parseDouble(fields[2]);
+            int skips = Integer.parseInt(fields[3]);
+            if (averageNanos < 0 || evaluations < 0 || metCount < 0 || metCount > evaluations || skips < 0) {
+                return statistics;
+            }
+            statistics.averageNanos = averageNanos;
+            statistics.evaluations = evaluations;
+            statistics.metCount = metCount;
+            statistics.skips = skips;
+        } catch (NumberFormatException nfe) {
+            // Empty statistics, learned again
+        }
+        return statistics;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.security.ACL;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContextHolder;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.jenkinsci.plugins.scripttrigger.groovy.GroovyScriptTrigger;
+import org.jenkinsci.plugins.scripttrigger.groovy.GroovyScriptTriggerExecutor;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ApprovalContext;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ScriptApproval;
+import org.jenkinsci.plugins.scriptsecurity.scripts.languages.GroovyLanguage;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * A Groovy script evaluated on the polling node or on the master, met when it returns true.
+ */
+public class GroovyCondition extends Condition {
+
+    private final String groovyExpression;
+
+    private final boolean groovySystemScript;
+
+    /**
+     * Runs the system script in the sandbox of the Script Security plugin, as anonymous.
+     */
+    private boolean groovySandbox;
+
+    @DataBoundConstructor
+    public GroovyCondition(String groovyExpression, boolean groovySystemScript, boolean groovySandbox) {
+        this.groovyExpression = Util.fixEmpty(groovyExpression);
+        this.groovySystemScript = groovySystemScript;
+        this.groovySandbox = groovySandbox;
+        configureScriptApproval();
+    }
+
+    @Deprecated
+    public GroovyCondition(String groovyExpression, boolean groovySystemScript) {
+        this(groovyExpression, groovySystemScript, false);
+    }
+
+    @SuppressWarnings("unused")
+    public String getGroovyExpression() {
+        return groovyExpression;
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isGroovySystemScript() {
+        return groovySystemScript;
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isGroovySandbox() {
+        return groovySandbox;
+    }
+
+    /**
+     * The system scripts loaded with the jobs are approved, the loading running with the system permissions.
+     */
+    @SuppressWarnings("unused")
+    private Object readResolve() {
+        configureScriptApproval();
+        return this;
+    }
+
+    /**
+     * Submits the system script run outside of the sandbox to the script approvals, see {@link GroovyScriptTrigger}.
+     */
+    private void configureScriptApproval() {
+        if (groovySystemScript && !groovySandbox && groovyExpression != null) {
+            ScriptApproval.get().configuring(groovyExpression, GroovyLanguage.get(), ApprovalContext.create().withCurrentUser());
+        }
+    }
+
+    @Override
+    public ConditionResult evaluate(ConditionContext context) throws ScriptTriggerException {
+        if (groovyExpression == null) {
+            context.getLog().info("The Groovy condition has no script.");
+            return new ConditionResult(false, null);
+        }
+
+        boolean sandboxed = groovySandbox && groovySystemScript;
+        if (groovySystemScript && !sandboxed) {
+            //Throws UnapprovedUsageException until an administrator approves the script
+            ScriptApproval.get().using(groovyExpression, GroovyLanguage.get());
+        }
+
+        final Authentication existingAuth = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.getContext().setAuthentication(sandboxed ? Jenkins.ANONYMOUS : ACL.SYSTEM);
+        try {
+            GroovyScriptTriggerExecutor executor = new GroovyScriptTriggerExecutor(context.getLog(), context.getRecorder());
+            executor.setSandbox(sandboxed);
+            executor.setOutputSpillFile(context.getOutputSpillFile());
+            boolean met = executor.evaluateGroovyScript(context.getNode(), context.getJob(), groovyExpression, context.getEnvVars(), groovySystemScript);
+            return new ConditionResult(met, executor.getOutputCause());
+        } finally {
+            SecurityContextHolder.getContext().setAuthentication(existingAuth);
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ConditionDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "Groovy script";
+        }
+
+        public FormValidation doCheckGroovyExpression(@QueryParameter String value) {
+            if (Util.fixEmpty(value) == null) {
+                return FormValidation.error("The script is mandatory.");
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckGroovySandbox(@QueryParameter boolean value, @QueryParameter boolean groovySystemScript) {
+            if (value && !groovySystemScript) {
+                return FormValidation.warning("The sandbox only applies to the system scripts, the node scripts run on the node.");
+            }
+            return FormValidation.ok();
+        }
+    }
+}
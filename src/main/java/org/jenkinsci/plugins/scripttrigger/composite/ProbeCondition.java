@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import hudson.Extension;
+import hudson.remoting.Callable;
+import org.jenkinsci.plugins.scripttrigger.PollPhase;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.jenkinsci.plugins.scripttrigger.probe.Probe;
+import org.jenkinsci.plugins.scripttrigger.probe.ProbeDescriptor;
+import org.jenkinsci.plugins.scripttrigger.probe.ProbeResult;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+
+/**
+ * A {@link Probe} checked inside the JVM of the polling node, met when the condition of the probe is met.
+ * The state returned by the latest check is kept in the poll state of the trigger, see {@link ConditionContext#setState}.
+ */
+public class ProbeCondition extends Condition {
+
+    private final Probe probe;
+
+    @DataBoundConstructor
+    public ProbeCondition(Probe probe) {
+        this.probe = probe;
+    }
+
+    @SuppressWarnings("unused")
+    public Probe getProbe() {
+        return probe;
+    }
+
+    @Override
+    public ConditionResult evaluate(ConditionContext context) throws ScriptTriggerException {
+        if (probe == null) {
+            context.getLog().info("The probe condition has no probe.");
+            return new ConditionResult(false, null);
+        }
+
+        ProbeResult result;
+        long evaluationStart = System.nanoTime();
+        try {
+            result = context.getNode().getRootPath().act(new CheckProbe(probe, context.getState(this)));
+        } catch (IOException ioe) {
+            throw new ScriptTriggerException(ioe);
+        } catch (InterruptedException ie) {
+            throw new ScriptTriggerException(ie);
+        } finally {
+            context.getRecorder().record(PollPhase.EVALUATION, evaluationStart);
+        }
+        context.getLog().info(result.getMessage());
+        context.setState(this, result.getState());
+        return new ConditionResult(result.isMet(), result.getMessage());
+    }
+
+    private static final class CheckProbe implements Callable<ProbeResult, IOException> {
+
+        private final Probe probe;
+
+        private final String state;
+
+        private CheckProbe(Probe probe, String state) {
+            this.probe = probe;
+            this.state = state;
+        }
+
+        public ProbeResult call() throws IOException {
+            try {
+                return probe.check(state);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw (IOException) new InterruptedIOException().initCause(ie);
+            }
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ConditionDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "Probe";
+        }
+
+        public List<ProbeDescriptor> getProbeDescriptors() {
+            return Probe.all();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import org.jenkinsci.plugins.scripttrigger.ExitCodeSet;
+import org.jenkinsci.plugins.scripttrigger.PollProcessLimits;
+import org.jenkinsci.plugins.scripttrigger.ScriptExecutionResult;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerExecutor;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * A shell or batch script run on the polling node, met when it exits with one of the expected exit codes.
+ */
+public class ShellCondition extends Condition {
+
+    private final String script;
+
+    private final String exitCode;
+
+    @DataBoundConstructor
+    public ShellCondition(String script, String exitCode) {
+        this.script = Util.fixEmpty(script);
+        this.exitCode = Util.fixEmptyAndTrim(exitCode);
+    }
+
+    @SuppressWarnings("unused")
+    public String getScript() {
+        return script;
+    }
+
+    @SuppressWarnings("unused")
+    public String getExitCode() {
+        return exitCode;
+    }
+
+    @Override
+    public ConditionResult evaluate(ConditionContext context) throws ScriptTriggerException {
+        if (script == null) {
+            context.getLog().info("The shell condition has no script.");
+            return new ConditionResult(false, null);
+        }
+
+        ExitCodeSet expectedExitCodes;
+        try {
+            expectedExitCodes = ExitCodeSet.parse(exitCode);
+        } catch (IllegalArgumentException iae) {
+            context.getLog().info(String.format("The given exit code '%s' is invalid. Fix the job configuration.", exitCode));
+            return new ConditionResult(false, null);
+        }
+
+        ScriptTriggerExecutor executor = new ScriptTriggerExecutor(context.getLog(), context.getRecorder());
+        executor.setOutputSpillFile(context.getOutputSpillFile());
+        executor.setProcessLimits(PollProcessLimits.resolve(null));
+        ScriptExecutionResult result = executor.executeScriptAndGetResult(context.getNode(), script, context.getEnvVars());
+        context.getLog().info(String.format("The exit code is '%s', expecting '%s'.", result.getExitCode(), expectedExitCodes));
+        return new ConditionResult(expectedExitCodes.contains(result.getExitCode()), result.getCause());
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ConditionDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "Shell script";
+        }
+
+        public FormValidation doCheckScript(@QueryParameter String value) {
+            return Util.fixEmpty(value) == null ? FormValidation.error("The script is mandatory.") : FormValidation.ok();
+        }
+
+        public FormValidation doCheckExitCode(@QueryParameter String value) {
+            try {
+                ExitCodeSet.parse(Util.fixEmptyAndTrim(value));
+                return FormValidation.ok();
+            } catch (IllegalArgumentException iae) {
+                return FormValidation.error(iae.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the members permitted by a {@link Whitelist} for a sandboxed script kept in the {@link GroovyScriptCache},
+ * so the pollings evaluating the compiled class check each method, constructor and field once instead of at every call.
+ * The permissions are remembered by member, as the whitelists of the Script Security plugin decide by signature.
+ * A rejected member isn't remembered, so a signature approved by an administrator is used by the next polling;
+ * a revoked approval applies to the script when it is compiled again.
+ */
+final class CachingWhitelist extends Whitelist {
+
+    private final Whitelist delegate;
+
+    private final Set<List<Object>> permitted = Collections.newSetFromMap(new ConcurrentHashMap<List<Object>, Boolean>());
+
+    CachingWhitelist(Whitelist delegate) {
+        this.delegate = delegate;
+    }
+
+    private boolean isPermitted(List<Object> key) {
+        return permitted.contains(key);
+    }
+
+    private boolean remember(List<Object> key, boolean permits) {
+        if (permits) {
+            permitted.add(key);
+        }
+        return permits;
+    }
+
+    private static List<Object> keyOf(String access, Object member) {
+        return Arrays.<Object>asList(access, member);
+    }
+
+    @Override
+    public boolean permitsMethod(Method method, Object receiver, Object[] args) {
+        List<Object> key = keyOf("method", method);
+        return isPermitted(key) || remember(key, delegate.permitsMethod(method, receiver, args));
+    }
+
+    @Override
+    public boolean permitsConstructor(Constructor<?> constructor, Object[] args) {
+        List<Object> key = keyOf("new", constructor);
+        return isPermitted(key) || remember(key, delegate.permitsConstructor(constructor, args));
+    }
+
+    @Override
+    public boolean permitsStaticMethod(Method method, Object[] args) {
+        List<Object> key = keyOf("staticMethod", method);
+        return isPermitted(key) || remember(key, delegate.permitsStaticMethod(method, args));
+    }
+
+    @Override
+    public boolean permitsFieldGet(Field field, Object receiver) {
+        List<Object> key = keyOf("field", field);
+        return isPermitted(key) || remember(key, delegate.permitsFieldGet(field, receiver));
+    }
+
+    @Override
+    public boolean permitsFieldSet(Field field, Object receiver, Object value) {
+        List<Object> key = keyOf("fieldSet", field);
+        return isPermitted(key) || remember(key, delegate.permitsFieldSet(field, receiver, value));
+    }
+
+    @Override
+    public boolean permitsStaticFieldGet(Field field) {
+        List<Object> key = keyOf("staticField", field);
+        return isPermitted(key) || remember(key, delegate.permitsStaticFieldGet(field));
+    }
+
+    @Override
+    public boolean permitsStaticFieldSet(Field field, Object value) {
+        List<Object> key = keyOf("staticFieldSet", field);
+        return isPermitted(key) || remember(key, delegate.permitsStaticFieldSet(field, value));
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the pollings of the Groovy system script triggers when the concurrent polling is enabled in the global
+ * configuration, instead of one at a time on the single thread of the trigger descriptor. The Groovy scripts mostly wait for I/O,
+ * so they run on virtual threads when the Java runtime has them, each polling on its own thread.
+ * On older runtimes they run on a pool of daemon threads.
+ * <p/>
+ * At most the configured number of pollings run at the same time, and a job never has two pollings running:
+ * a polling requested while the previous one of the same job still runs waits for it,
+ * and replaces the polling of the job already waiting, if any. A replaced polling handed as a {@link Future}
+ * is cancelled, so nothing waits on it forever.
+ */
+final class GroovyPollingExecutor extends AbstractExecutorService {
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutorFactory();
+
+    private static final GroovyPollingExecutor INSTANCE = new GroovyPollingExecutor();
+
+    /**
+     * The job whose polling the trigger is scheduling on the current thread, see {@link #setScheduledJob(Object)}.
+     */
+    private static final ThreadLocal<Object> SCHEDULED_JOB = new ThreadLocal<Object>();
+
+    private final ExecutorService executor;
+
+    /**
+     * The executor without virtual threads, else null.
+     */
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Caps the pollings running on virtual threads, which are not pooled.
+     */
+    private Semaphore permits;
+
+    private int maxConcurrentPollings;
+
+    /**
+     * The jobs with a polling running, mapped to the polling waiting for it or to null.
+     */
+    private final Map<Object, Runnable> runningJobs = new HashMap<Object, Runnable>();
+
+    private GroovyPollingExecutor() {
+        ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+        if (virtualThreadExecutor == null) {
+            pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new PollingThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        } else {
+            pool = null;
+            executor = virtualThreadExecutor;
+        }
+    }
+
+    /**
+     * @param maxConcurrentPollings the number of pollings running at the same time
+     */
+    static ExecutorService get(int maxConcurrentPollings) {
+        INSTANCE.setMaxConcurrentPollings(maxConcurrentPollings);
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the job whose polling the trigger hands to the executor on the current thread, null once done.
+     */
+    static void setScheduledJob(Object job) {
+        if (job == null) {
+            SCHEDULED_JOB.remove();
+        } else {
+            SCHEDULED_JOB.set(job);
+        }
+    }
+
+    /**
+     * @return true if a trigger is handing the polling of a job on the current thread
+     */
+    static boolean isJobScheduled() {
+        return SCHEDULED_JOB.get() != null;
+    }
+
+    private synchronized void setMaxConcurrentPollings(int maxConcurrentPollings) {
+        if (this.maxConcurrentPollings == maxConcurrentPollings) {
+            return;
+        }
+        if (pool == null) {
+            //The pollings holding a permit of the previous semaphore release it
+            permits = new Semaphore(maxConcurrentPollings);
+        } else if (maxConcurrentPollings > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(maxConcurrentPollings);
+            pool.setCorePoolSize(maxConcurrentPollings);
+        } else {
+            pool.setCorePoolSize(maxConcurrentPollings);
+            pool.setMaximumPoolSize(maxConcurrentPollings);
+        }
+        this.maxConcurrentPollings = maxConcurrentPollings;
+    }
+
+    public void execute(Runnable command) {
+        Object job = SCHEDULED_JOB.get();
+        if (job != null && !startOrWait(job, command)) {
+            return;
+        }
+        start(job, command);
+    }
+
+    /**
+     * @return true if the polling of the job has to start now, false if it waits for the running one
+     */
+    private boolean startOrWait(Object job, Runnable command) {
+        Runnable replaced;
+        synchronized (runningJobs) {
+            if (!runningJobs.containsKey(job)) {
+                runningJobs.put(job, null);
+                return true;
+            }
+            replaced = runningJobs.put(job, command);
+        }
+        if (replaced instanceof Future) {
+            ((Future<?>) replaced).cancel(false);
+        }
+        return false;
+    }
+
+    private void start(final Object job, final Runnable command) {
+        Runnable polling = new Runnable() {
+            public void run() {
+                try {
+                    runWithPermit(command);
+                } finally {
+                    if (job != null) {
+                        startWaitingPolling(job);
+                    }
+                }
+            }
+        };
+        try {
+            executor.execute(polling);
+        } catch (RejectedExecutionException ree) {
+            if (job != null) {
+                synchronized (runningJobs) {
+                    runningJobs.remove(job);
+                }
+            }
+            throw ree;
+        }
+    }
+
+    private void runWithPermit(Runnable command) {
+        Semaphore semaphore;
+        synchronized (this) {
+            semaphore = permits;
+        }
+        if (semaphore == null) {
+            command.run();
+            return;
+        }
+        semaphore.acquireUninterruptibly();
+        try {
+            command.run();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    private void startWaitingPolling(Object job) {
+        Runnable waiting;
+        synchronized (runningJobs) {
+            waiting = runningJobs.remove(job);
+            if (waiting != null) {
+                runningJobs.put(job, null);
+            }
+        }
+        if (waiting != null) {
+            start(job, waiting);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (Exception e) {
+                //Falls back to the platform threads
+            }
+        }
+        return null;
+    }
+
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException nsme) {
+            return null;
+        }
+    }
+
+    private static final class PollingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ScriptTrigger Groovy polling " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.RejectedAccessException;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.groovy.GroovySandbox;
+
+import java.lang.annotation.Annotation;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the classes compiled from the Groovy trigger scripts, so a script is compiled and checked once
+ * and each evaluation only instantiates the compiled class.
+ * Compilation failures are kept as well.
+ * A sandboxed script is compiled with the call interception of the Script Security plugin, and its
+ * whitelist checks are cached with the compiled class, see {@link CachingWhitelist}.
+ */
+public final class GroovyScriptCache {
+
+    private static final int MAX_SIZE = Integer.getInteger(GroovyScriptCache.class.getName() + ".maxSize", 512);
+
+    private static final GroovyScriptCache INSTANCE = new GroovyScriptCache();
+
+    private static final Class<? extends Annotation> COMPILE_STATIC = findCompileStatic();
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private GroovyScriptCache() {
+    }
+
+    public static GroovyScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> findCompileStatic() {
+        try {
+            return (Class<? extends Annotation>) Class.forName("groovy.transform.CompileStatic", false, GroovyShell.class.getClassLoader());
+        } catch (ClassNotFoundException cnfe) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the Groovy runtime supports the static compilation, from Groovy 2.0
+     */
+    public static boolean isStaticCompilationSupported() {
+        return COMPILE_STATIC != null;
+    }
+
+    /**
+     * Returns the class compiled from the given script, compiling it on the first call.
+     *
+     * @throws RuntimeException the compilation failure, for instance a {@link org.codehaus.groovy.control.CompilationFailedException}
+     */
+    public Class<? extends Script> getScriptClass(String scriptContent, ClassLoader classLoader) {
+        return getScriptClass(scriptContent, false, classLoader);
+    }
+
+    /**
+     * Returns the class compiled from the given script, compiling it on the first call.
+     *
+     * @param staticCompile true to compile the script as annotated with @CompileStatic,
+     *                      see {@link #isStaticCompilationSupported()}
+     * @throws RuntimeException the compilation failure, including the type checking errors
+     */
+    public Class<? extends Script> getScriptClass(String scriptContent, boolean staticCompile, ClassLoader classLoader) {
+        return getScript(scriptContent, staticCompile, false, classLoader).getScriptClass();
+    }
+
+    /**
+     * Returns the script compiled from the given content, compiling it on the first call.
+     *
+     * @param staticCompile true to compile the script as annotated with @CompileStatic,
+     *                      see {@link #isStaticCompilationSupported()}
+     * @param sandbox       true to run the script in the sandbox of the Script Security plugin
+     * @throws RuntimeException the compilation failure, including the type checking errors
+     */
+    public CompiledScript getScript(String scriptContent, boolean staticCompile, boolean sandbox, ClassLoader classLoader) {
+        checkOptions(staticCompile, sandbox);
+        Key key = new Key(scriptContent, staticCompile, sandbox, classLoader);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+        }
+        return entry.getScript(key);
+    }
+
+    /**
+     * Compiles the given script without keeping the class nor the failure, for the form validations.
+     *
+     * @throws RuntimeException the compilation failure, including the type checking errors
+     */
+    public static void compile(String scriptContent, boolean staticCompile, ClassLoader classLoader) {
+        checkOptions(staticCompile, false);
+        compile(new Key(scriptContent, staticCompile, false, classLoader));
+    }
+
+    private static void checkOptions(boolean staticCompile, boolean sandbox) {
+        if (staticCompile && !isStaticCompilationSupported()) {
+            throw new IllegalStateException("The static compilation requires Groovy 2.0 or later, this Jenkins provides Groovy " + InvokerHelper.getVersion() + ".");
+        }
+        if (staticCompile && sandbox) {
+            throw new IllegalArgumentException("The static compilation can't be used with the sandbox: the statically compiled calls aren't intercepted.");
+        }
+    }
+
+    private static Class<? extends Script> compile(Key key) {
+        CompilerConfiguration configuration = key.sandbox ? GroovySandbox.createSecureCompilerConfiguration() : new CompilerConfiguration();
+        if (key.staticCompile) {
+            configuration.addCompilationCustomizers(new ASTTransformationCustomizer(COMPILE_STATIC));
+        }
+        GroovyShell shell = new GroovyShell(key.classLoader, new Binding(), configuration);
+        return shell.parse(key.scriptContent).getClass();
+    }
+
+    /**
+     * A compiled script, run in the sandbox if it was compiled for it.
+     */
+    public static final class CompiledScript {
+
+        private final Class<? extends Script> scriptClass;
+
+        /**
+         * The whitelist of a sandboxed script, null otherwise.
+         */
+        private final Whitelist whitelist;
+
+        private CompiledScript(Class<? extends Script> scriptClass, Whitelist whitelist) {
+            this.scriptClass = scriptClass;
+            this.whitelist = whitelist;
+        }
+
+        public Class<? extends Script> getScriptClass() {
+            return scriptClass;
+        }
+
+        public boolean isSandboxed() {
+            return whitelist != null;
+        }
+
+        /**
+         * @throws RejectedAccessException if a sandboxed script uses a member which isn't whitelisted
+         */
+        public Object run(Binding binding) throws RejectedAccessException {
+            Script script = InvokerHelper.createScript(scriptClass, binding);
+            if (whitelist == null) {
+                return script.run();
+            }
+            return GroovySandbox.run(script, whitelist);
+        }
+    }
+
+    private static final class Entry {
+
+        private CompiledScript script;
+
+        private RuntimeException failure;
+
+        private synchronized CompiledScript getScript(Key key) {
+            if (script == null && failure == null) {
+                try {
+                    script = new CompiledScript(compile(key), key.sandbox ? new CachingWhitelist(Whitelist.all()) : null);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return script;
+        }
+    }
+
+    private static final class Key {
+
+        private final String scriptContent;
+
+        private final boolean staticCompile;
+
+        private final boolean sandbox;
+
+        private final ClassLoader classLoader;
+
+        private Key(String scriptContent, boolean staticCompile, boolean sandbox, ClassLoader classLoader) {
+            this.scriptContent = scriptContent;
+            this.staticCompile = staticCompile;
+            this.sandbox = sandbox;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return staticCompile == other.staticCompile && sandbox == other.sandbox && classLoader == other.classLoader
+                    && scriptContent.equals(other.scriptContent);
+        }
+
+        @Override
+        public int hashCode() {
+            return scriptContent.hashCode() * 31 + (staticCompile ? 1 : 0) + (sandbox ? 2 : 0) + System.identityHashCode(classLoader);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import hudson.util.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the content of the Groovy system script files read on the master, so a file shared by many jobs is
+ * read once per change instead of once per polling of each job. A file is read again when its modification
+ * date, its size or the charset changes. As the modification date has a coarse resolution on some file systems,
+ * an edit keeping the size within the same tick isn't seen by the dates: a file modified shortly before it was read
+ * is read again until it was read after that window, and its content compared with the cached one.
+ * The file system isn't watched, the WatchService requiring Java 7. As every polling gets the same content instance, the
+ * {@link GroovyScriptCache} lookup of the compiled class is an identity comparison and the file is compiled
+ * once per change as well.
+ */
+public final class GroovyScriptFileCache {
+
+    /**
+     * The coarsest resolution of the modification dates, 2 seconds on FAT file systems.
+     */
+    private static final long MODIFICATION_DATE_RESOLUTION = 2000;
+
+    private static final GroovyScriptFileCache INSTANCE = new GroovyScriptFileCache();
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private GroovyScriptFileCache() {
+    }
+
+    public static GroovyScriptFileCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the content of the file decoded with the given charset, or null if the file doesn't exist
+     */
+    public String getContent(File file, Charset charset) throws IOException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        if (lastModified == 0 && !file.isFile()) {
+            entries.remove(key);
+            return null;
+        }
+        long length = file.length();
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isCurrent(lastModified, length, charset)) {
+            return entry.content;
+        }
+
+        //A change during the read is seen by the next stat, the stat being taken before the read
+        long readAt = System.currentTimeMillis();
+        String content = read(file, charset);
+        if (entry != null && entry.charset.equals(charset) && entry.content.equals(content)) {
+            //Keeps the same instance for the identity lookup of the compiled class
+            content = entry.content;
+        }
+        entries.put(key, new Entry(lastModified, length, charset, content, readAt));
+        return content;
+    }
+
+    private static String read(File file, Charset charset) throws IOException {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            return IOUtils.toString(fis, charset.name());
+        } finally {
+            fis.close();
+        }
+    }
+
+    private static final class Entry {
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Charset charset;
+
+        private final String content;
+
+        private final long readAt;
+
+        private Entry(long lastModified, long length, Charset charset, String content, long readAt) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.charset = charset;
+            this.content = content;
+            this.readAt = readAt;
+        }
+
+        /**
+         * @return true if the file didn't change since it was read, false if it may have changed
+         */
+        private boolean isCurrent(long lastModified, long length, Charset charset) {
+            return this.lastModified == lastModified && this.length == length && this.charset.equals(charset)
+                    && readAt - lastModified > MODIFICATION_DATE_RESOLUTION;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import hudson.model.TaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles the system scripts of the Groovy triggers in the background when their jobs are loaded or saved,
+ * so the first polling finds the compiled class in the {@link GroovyScriptCache}.
+ * The compilations run on a small pool of low priority threads with a bounded queue: the scripts
+ * not compiled when the queue is full are compiled by their first polling.
+ */
+public final class GroovyScriptPrecompiler {
+
+    private static final int POOL_SIZE = Integer.getInteger(GroovyScriptPrecompiler.class.getName() + ".poolSize", 2);
+
+    private static final int QUEUE_SIZE = Integer.getInteger(GroovyScriptPrecompiler.class.getName() + ".queueSize", 1000);
+
+    private static final GroovyScriptPrecompiler INSTANCE = new GroovyScriptPrecompiler();
+
+    private final ThreadPoolExecutor executor;
+
+    private GroovyScriptPrecompiler() {
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new PrecompilerThreadFactory(), new ThreadPoolExecutor.DiscardPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static GroovyScriptPrecompiler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the compilation of the system scripts of the given trigger. Does nothing for the node scripts,
+     * which are compiled on the node.
+     */
+    public void precompile(final GroovyScriptTrigger trigger) {
+        if (!trigger.isGroovySystemScript()) {
+            return;
+        }
+        final String groovyExpression = trigger.getGroovyExpression();
+        final String groovyFilePath = trigger.getGroovyFilePath();
+        if (groovyExpression == null && (groovyFilePath == null || groovyFilePath.contains("$"))) {
+            return;
+        }
+        final boolean staticCompile = trigger.isGroovyStaticCompile();
+        final boolean sandbox = trigger.isGroovySandbox();
+        executor.execute(new Runnable() {
+            public void run() {
+                GroovyScriptTriggerExecutor scriptExecutor = new GroovyScriptTriggerExecutor(new XTriggerLog(TaskListener.NULL));
+                scriptExecutor.setStaticCompile(staticCompile);
+                scriptExecutor.setSandbox(sandbox);
+                try {
+                    if (groovyExpression != null) {
+                        scriptExecutor.precompileGroovySystemScript(groovyExpression);
+                    }
+                    //The path of the script can only be resolved by a polling when it references variables
+                    if (groovyFilePath != null && !groovyFilePath.contains("$")) {
+                        scriptExecutor.precompileGroovySystemScriptFile(groovyFilePath);
+                    }
+                } catch (IOException ioe) {
+                    //The polling reports it
+                } catch (RuntimeException e) {
+                    //The compilation failure is kept by the cache and reported by the polling
+                }
+            }
+        });
+    }
+
+    private static final class PrecompilerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ScriptTrigger Groovy precompiler " + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
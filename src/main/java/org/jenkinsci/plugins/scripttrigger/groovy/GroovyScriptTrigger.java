@@ -30,6 +30,7 @@ import hudson.console.AnnotatedLargeText;
 import hudson.model.*;
 import hudson.remoting.VirtualChannel;
 import hudson.security.ACL;
+import hudson.util.FormValidation;
 import org.acegisecurity.Authentication;
 import org.acegisecurity.context.SecurityContextHolder;
 import org.apache.commons.jelly.XMLOutput;
@@ -37,17 +38,30 @@ import org.jenkinsci.lib.envinject.EnvInjectException;
 import org.jenkinsci.lib.envinject.service.EnvVarsResolver;
 import org.jenkinsci.lib.xtrigger.XTriggerDescriptor;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
-import org.jenkinsci.plugins.parameterizedscheduler.ParameterizedStaplerRequest;
 import org.jenkinsci.plugins.scripttrigger.AbstractTrigger;
+import org.jenkinsci.plugins.scripttrigger.CircuitBreaker;
 import org.jenkinsci.plugins.scripttrigger.LabelRestrictionClass;
+import org.jenkinsci.plugins.scripttrigger.NodeExecutionContext;
+import org.jenkinsci.plugins.scripttrigger.PollPhase;
+import org.jenkinsci.plugins.scripttrigger.PollRecorder;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerConfiguration;
 import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.jenkinsci.plugins.scripttrigger.TriggerParameters;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ApprovalContext;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ScriptApproval;
+import org.jenkinsci.plugins.scriptsecurity.scripts.languages.GroovyLanguage;
+import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.ObjectStreamException;
 import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import jenkins.model.Jenkins;
 
@@ -65,14 +79,38 @@ public class GroovyScriptTrigger extends AbstractTrigger {
 
     private final boolean groovySystemScript;
 
+    private boolean groovyStaticCompile;
+
+    /**
+     * Runs the system scripts in the sandbox of the Script Security plugin, as anonymous.
+     */
+    private boolean groovySandbox;
+
     @DataBoundConstructor
     @SuppressWarnings("unused")
-    public GroovyScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String groovyExpression, String groovyFilePath, String propertiesFilePath, boolean groovySystemScript) throws ANTLRException {
+    public GroovyScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String groovyExpression, String groovyFilePath, String propertiesFilePath, boolean groovySystemScript, boolean groovyStaticCompile, boolean groovySandbox) throws ANTLRException {
         super(cronTabSpec, (labelRestriction == null) ? false : true, (labelRestriction == null) ? null : labelRestriction.getTriggerLabel(), enableConcurrentBuild);
         this.groovyExpression = Util.fixEmpty(groovyExpression);
         this.groovyFilePath = Util.fixEmpty(groovyFilePath);
         this.propertiesFilePath = Util.fixEmpty(propertiesFilePath);
         this.groovySystemScript = groovySystemScript;
+        this.groovyStaticCompile = groovyStaticCompile;
+        this.groovySandbox = groovySandbox;
+        if (groovySystemScript && !groovySandbox && this.groovyFilePath != null) {
+            //The content of the file can't be approved, only the users allowed to run scripts can choose it
+            Jenkins.getInstance().checkPermission(Jenkins.RUN_SCRIPTS);
+        }
+        configureScriptApproval();
+    }
+
+    @Deprecated
+    public GroovyScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String groovyExpression, String groovyFilePath, String propertiesFilePath, boolean groovySystemScript, boolean groovyStaticCompile) throws ANTLRException {
+        this(cronTabSpec, labelRestriction, enableConcurrentBuild, groovyExpression, groovyFilePath, propertiesFilePath, groovySystemScript, groovyStaticCompile, false);
+    }
+
+    @Deprecated
+    public GroovyScriptTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, String groovyExpression, String groovyFilePath, String propertiesFilePath, boolean groovySystemScript) throws ANTLRException {
+        this(cronTabSpec, labelRestriction, enableConcurrentBuild, groovyExpression, groovyFilePath, propertiesFilePath, groovySystemScript, false);
     }
 
     @SuppressWarnings("unused")
@@ -94,6 +132,54 @@ public class GroovyScriptTrigger extends AbstractTrigger {
         return groovySystemScript;
     }
 
+    public boolean isGroovyStaticCompile() {
+        return groovyStaticCompile;
+    }
+
+    public boolean isGroovySandbox() {
+        return groovySandbox;
+    }
+
+    /**
+     * The system scripts loaded with the jobs are approved, the loading running with the system permissions.
+     */
+    @Override
+    protected Object readResolve() throws ObjectStreamException {
+        configureScriptApproval();
+        return super.readResolve();
+    }
+
+    /**
+     * Submits the system script run outside of the sandbox to the script approvals. It is approved if the current
+     * user can run scripts, and must be approved by an administrator otherwise.
+     */
+    private void configureScriptApproval() {
+        if (groovySystemScript && !groovySandbox && groovyExpression != null) {
+            ScriptApproval.get().configuring(groovyExpression, GroovyLanguage.get(), ApprovalContext.create().withCurrentUser());
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!groovySystemScript) {
+            super.run();
+            return;
+        }
+        //Hands the polling to the concurrent executor, which keeps a single polling of the job in flight
+        GroovyPollingExecutor.setScheduledJob(job);
+        try {
+            super.run();
+        } finally {
+            GroovyPollingExecutor.setScheduledJob(null);
+        }
+    }
+
+    @Override
+    public void start(BuildableItem project, boolean newInstance) {
+        super.start(project, newInstance);
+        GroovyScriptPrecompiler.getInstance().precompile(this);
+    }
+
     @Override
     public Collection<? extends Action> getProjectActions() {
         GroovyScriptTriggerAction action = new InternalGroovyScriptTriggerAction(getDescriptor().getDisplayName());
@@ -105,6 +191,16 @@ public class GroovyScriptTrigger extends AbstractTrigger {
         return new File(job.getRootDir(), "groovyScriptTrigger-polling.log");
     }
 
+    @Override
+    protected File getStateFile() {
+        return new File(job.getRootDir(), "groovyScriptTrigger-state.xml");
+    }
+
+    @Override
+    protected File getOutputSpillFile() {
+        return new File(job.getRootDir(), "groovyScriptTrigger-output.gz");
+    }
+
     @Override
     protected String getDefaultMessageCause() {
         return "Groovy Expression evaluation to true.";
@@ -114,6 +210,7 @@ public class GroovyScriptTrigger extends AbstractTrigger {
     protected Action[] getScheduledActions(Node pollingNode, final XTriggerLog log) throws ScriptTriggerException {
 
         if (propertiesFilePath != null) {
+            long start = System.nanoTime();
             try {
                 FilePath rootPath = null;
                 if (this.isGroovySystemScript()) {
@@ -144,19 +241,7 @@ public class GroovyScriptTrigger extends AbstractTrigger {
                         assert job != null : "job must not be null if this was 'started'";
                         ParametersDefinitionProperty paramDefProp = (ParametersDefinitionProperty) ((Job) job)
                                 .getProperty(ParametersDefinitionProperty.class);
-                        List<ParameterValue> parameterValueList = new ArrayList<ParameterValue>();
-
-                        /* Scan for all parameter with an associated default values */
-                        for (ParameterDefinition paramDefinition : paramDefProp.getParameterDefinitions()) {
-                            ParameterValue defaultValue = paramDefinition.getDefaultParameterValue();
-
-                            if (properties.containsKey(paramDefinition.getName())) {
-                                ParameterizedStaplerRequest request = new ParameterizedStaplerRequest(
-                                        String.valueOf(properties.get(paramDefinition.getName())));
-                                parameterValueList.add(paramDefinition.createValue(request));
-                            } else if (defaultValue != null)
-                                parameterValueList.add(defaultValue);
-                        }
+                        List<ParameterValue> parameterValueList = TriggerParameters.toParameterValues(paramDefProp, properties);
                         return new Action[]{new ParametersAction(parameterValueList)};
                     }
                 });
@@ -164,37 +249,63 @@ public class GroovyScriptTrigger extends AbstractTrigger {
                 throw new ScriptTriggerException(ioe);
             } catch (InterruptedException ie) {
                 throw new ScriptTriggerException(ie);
+            } finally {
+                getCurrentRecorder().record(PollPhase.MARKER_EXTRACTION, start);
             }
         }
         return new Action[0];
     }
 
     @Override
-    protected boolean checkIfModified(Node pollingNode, XTriggerLog log) throws ScriptTriggerException {
+    protected boolean checkIfModified(Node pollingNode, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
+        NodeExecutionContext context = NodeExecutionContext.of(pollingNode);
+        if (context == null && !groovySystemScript) {
+            log.info(String.format("The node '%s' is offline. Skipping the polling.", getNodeName(pollingNode)));
+            return false;
+        }
+
+        if (groovyStaticCompile && !GroovyScriptCache.isStaticCompilationSupported()) {
+            throw new ScriptTriggerException("The job is configured to compile its scripts statically, which requires Groovy 2.0 or later. Uncheck the option in the job configuration.");
+        }
+
+        if (groovySandbox && !groovySystemScript) {
+            log.info("The sandbox only applies to the system scripts, the script runs on the node.");
+        }
+        boolean sandboxed = groovySandbox && groovySystemScript;
+        if (groovySystemScript && !sandboxed && groovyExpression != null) {
+            //Throws UnapprovedUsageException until an administrator approves the script
+            ScriptApproval.get().using(groovyExpression, GroovyLanguage.get());
+        }
+
         final Authentication existingAuth = SecurityContextHolder.getContext().getAuthentication();
-        SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
+        SecurityContextHolder.getContext().setAuthentication(sandboxed ? Jenkins.ANONYMOUS : ACL.SYSTEM);
         try {
 
-            GroovyScriptTriggerExecutor executor = getGroovyScriptTriggerExecutor(log);
+            GroovyScriptTriggerExecutor executor = getGroovyScriptTriggerExecutor(log, recorder);
             final AbstractProject proj = (AbstractProject) job;
 
+            long envStart = System.nanoTime();
             EnvVarsResolver envVarsResolver = new EnvVarsResolver();
             Map<String, String> envVars;
             try {
                 envVars = envVarsResolver.getPollingEnvVars(proj, pollingNode);
             } catch (EnvInjectException e) {
                 throw new ScriptTriggerException(e);
+            } finally {
+                recorder.record(PollPhase.ENV_RESOLUTION, envStart);
             }
 
             if (groovyExpression != null) {
-                boolean evaluationSucceed = executor.evaluateGroovyScript(pollingNode, proj, getGroovyExpression(), envVars, groovySystemScript);
+                boolean evaluationSucceed = executor.evaluateGroovyScript(context, proj, getGroovyExpression(), envVars, groovySystemScript);
+                recordOutputMarkers(executor.getOutputCause(), executor.getOutputDescription());
                 if (evaluationSucceed) {
                     return true;
                 }
             }
 
             if (groovyFilePath != null) {
-                boolean evaluationSucceed = executor.evaluateGroovyScriptFilePath(pollingNode, proj, Util.replaceMacro(groovyFilePath, envVars), envVars, groovySystemScript);
+                boolean evaluationSucceed = executor.evaluateGroovyScriptFilePath(context, proj, Util.replaceMacro(groovyFilePath, envVars), envVars, groovySystemScript);
+                recordOutputMarkers(executor.getOutputCause(), executor.getOutputDescription());
                 if (evaluationSucceed) {
                     return true;
                 }
@@ -206,8 +317,12 @@ public class GroovyScriptTrigger extends AbstractTrigger {
         }
     }
 
-    private GroovyScriptTriggerExecutor getGroovyScriptTriggerExecutor(XTriggerLog log) throws ScriptTriggerException {
-        return new GroovyScriptTriggerExecutor(log);
+    private GroovyScriptTriggerExecutor getGroovyScriptTriggerExecutor(XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
+        GroovyScriptTriggerExecutor executor = new GroovyScriptTriggerExecutor(log, recorder);
+        executor.setStaticCompile(groovyStaticCompile);
+        executor.setSandbox(groovySandbox && groovySystemScript);
+        executor.setOutputSpillFile(getOutputSpillFile());
+        return executor;
     }
 
     @Extension
@@ -228,6 +343,73 @@ public class GroovyScriptTrigger extends AbstractTrigger {
         public String getHelpFile() {
             return "/plugin/scripttrigger/help-groovyScript.html";
         }
+
+        /**
+         * @return the executor of the pollings, concurrent for the system scripts if enabled in the
+         * {@link ScriptTriggerConfiguration}
+         */
+        @Override
+        public ExecutorService getExecutor() {
+            ScriptTriggerConfiguration configuration = ScriptTriggerConfiguration.get();
+            if (configuration == null || !configuration.isGroovyConcurrentPolling() || !GroovyPollingExecutor.isJobScheduled()) {
+                return super.getExecutor();
+            }
+            return GroovyPollingExecutor.get(configuration.getGroovyMaxConcurrentPollings());
+        }
+
+        /**
+         * @return true if the current user can configure the given job, or administer Jenkins outside of a job,
+         * and can run scripts
+         */
+        public static boolean hasScriptPermissions(Item item) {
+            boolean configure = item == null ? Jenkins.getInstance().hasPermission(Jenkins.ADMINISTER) : item.hasPermission(Item.CONFIGURE);
+            return configure && Jenkins.getInstance().hasPermission(Jenkins.RUN_SCRIPTS);
+        }
+
+        /**
+         * Type checks the statically compiled scripts. Compiling a script runs its AST transformations,
+         * so the check is restricted to the users allowed to configure the job and to run scripts.
+         */
+        @RequirePOST
+        public FormValidation doCheckGroovyExpression(@AncestorInPath Item item, @QueryParameter String value, @QueryParameter boolean groovyStaticCompile) {
+            value = Util.fixEmpty(value);
+            if (value == null || !groovyStaticCompile || !hasScriptPermissions(item)) {
+                return FormValidation.ok();
+            }
+            try {
+                GroovyScriptCache.compile(GroovyScriptTriggerExecutor.processPath(value), groovyStaticCompile, Jenkins.getInstance().getPluginManager().uberClassLoader);
+                return FormValidation.ok();
+            } catch (RuntimeException e) {
+                return FormValidation.error(e.getMessage());
+            }
+        }
+
+        /**
+         * @return true if the static compilation option can be offered, the Groovy runtime of Jenkins providing @CompileStatic
+         */
+        public boolean isStaticCompilationSupported() {
+            return GroovyScriptCache.isStaticCompilationSupported();
+        }
+
+        public FormValidation doCheckGroovySandbox(@QueryParameter boolean value, @QueryParameter boolean groovySystemScript, @QueryParameter boolean groovyStaticCompile) {
+            if (!value) {
+                return FormValidation.ok();
+            }
+            if (groovyStaticCompile) {
+                return FormValidation.error("The static compilation can't be used with the sandbox.");
+            }
+            if (!groovySystemScript) {
+                return FormValidation.warning("The sandbox only applies to the system scripts, the node scripts run on the node.");
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckGroovyStaticCompile(@QueryParameter boolean value) {
+            if (value && !GroovyScriptCache.isStaticCompilationSupported()) {
+                return FormValidation.error("The static compilation requires Groovy 2.0 or later.");
+            }
+            return FormValidation.ok();
+        }
     }
 
     public final class InternalGroovyScriptTriggerAction extends GroovyScriptTriggerAction {
@@ -263,6 +445,11 @@ public class GroovyScriptTrigger extends AbstractTrigger {
             return actionTitle;
         }
 
+        @SuppressWarnings("unused")
+        public CircuitBreaker getCircuitBreaker() {
+            return GroovyScriptTrigger.this.getCircuitBreaker();
+        }
+
         @SuppressWarnings("unused")
         public String getLog() throws IOException {
             return Util.loadFile(getLogFile());
@@ -22,49 +22,124 @@
  */
 package org.jenkinsci.plugins.scripttrigger.groovy;
 
-import groovy.lang.GroovyShell;
+import groovy.lang.Binding;
 import hudson.PluginManager;
 import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Hudson;
 import hudson.model.Node;
 import hudson.remoting.Callable;
-import hudson.util.IOUtils;
+import hudson.remoting.RemoteOutputStream;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.scripttrigger.AsyncScriptExecutor;
+import org.jenkinsci.plugins.scripttrigger.NodeExecutionContext;
+import org.jenkinsci.plugins.scripttrigger.PollPhase;
+import org.jenkinsci.plugins.scripttrigger.PollRecorder;
+import org.jenkinsci.plugins.scripttrigger.PollSkippedException;
+import org.jenkinsci.plugins.scripttrigger.ScriptOutputSink;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerConfiguration;
 import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
 import org.jenkinsci.plugins.scripttrigger.ScriptTriggerExecutor;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.RejectedAccessException;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ApprovalContext;
+import org.jenkinsci.plugins.scriptsecurity.scripts.ScriptApproval;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * @author Gregory Boissinot
  */
 public class GroovyScriptTriggerExecutor extends ScriptTriggerExecutor {
 
+    /**
+     * Compiles the scripts with the @CompileStatic semantics, sent with the executor to the node.
+     */
+    private boolean staticCompile;
+
+    /**
+     * Runs the system scripts in the sandbox of the Script Security plugin. The node scripts run on the node
+     * without the Jenkins model, as the shell scripts, and aren't sandboxed.
+     */
+    private boolean sandbox;
+
     public GroovyScriptTriggerExecutor(XTriggerLog log) {
         super(log);
     }
 
+    public GroovyScriptTriggerExecutor(XTriggerLog log, PollRecorder recorder) {
+        super(log, recorder);
+    }
+
+    public void setStaticCompile(boolean staticCompile) {
+        this.staticCompile = staticCompile;
+    }
+
+    public void setSandbox(boolean sandbox) {
+        this.sandbox = sandbox;
+    }
+
     public boolean evaluateGroovyScript(Node executingNode, final AbstractProject proj, final String scriptContent, final Map<String, String> envVars, boolean groovySystemScript) throws ScriptTriggerException {
+        return evaluateGroovyScript(getContext(executingNode, groovySystemScript), proj, scriptContent, envVars, groovySystemScript);
+    }
+
+    /**
+     * Evaluates the script without blocking the caller, see {@link AsyncScriptExecutor}.
+     *
+     * @param context the polling node, not used by a system script and then possibly null
+     */
+    public Future<Boolean> evaluateGroovyScriptAsync(final NodeExecutionContext context, final AbstractProject proj, final String scriptContent, final Map<String, String> envVars, final boolean groovySystemScript) throws ScriptTriggerException {
+        return AsyncScriptExecutor.getInstance().submit(new java.util.concurrent.Callable<Boolean>() {
+            public Boolean call() throws ScriptTriggerException {
+                return evaluateGroovyScript(context, proj, scriptContent, envVars, groovySystemScript);
+            }
+        });
+    }
+
+    public Future<Boolean> evaluateGroovyScriptFilePathAsync(final NodeExecutionContext context, final AbstractProject proj, final String scriptFilePath, final Map<String, String> envVars, final boolean groovySystemScript) throws ScriptTriggerException {
+        return AsyncScriptExecutor.getInstance().submit(new java.util.concurrent.Callable<Boolean>() {
+            public Boolean call() throws ScriptTriggerException {
+                return evaluateGroovyScriptFilePath(context, proj, scriptFilePath, envVars, groovySystemScript);
+            }
+        });
+    }
+
+    /**
+     * @param context the polling node, not used by a system script and then possibly null
+     */
+    public boolean evaluateGroovyScript(NodeExecutionContext context, final AbstractProject proj, final String scriptContent, final Map<String, String> envVars, boolean groovySystemScript) throws ScriptTriggerException {
 
         if (scriptContent == null) {
             throw new NullPointerException("The script content object must be set.");
         }
+        long evaluationStart = System.nanoTime();
+        ScriptOutputSink sink = newOutputSink();
+        boolean evaluated = false;
         try {
             if (groovySystemScript) {
                 log.info("Running as system script");
-                return evaluateGroovyScript(proj, scriptContent, envVars);
+                boolean result = evaluateGroovyScript(proj, scriptContent, envVars, new PrintStream(sink, true), sandbox);
+                evaluated = true;
+                return result;
             }
 
-            return executingNode.getRootPath().act(new Callable<Boolean, ScriptTriggerException>() {
+            final OutputStream remoteOutput = new RemoteOutputStream(sink);
+            final boolean streaming = ScriptTriggerConfiguration.isOutputStreamedOnNodes();
+            awaitLaunch(context);
+            boolean result = context.getRootPath().act(new Callable<Boolean, ScriptTriggerException>() {
                 public Boolean call() throws ScriptTriggerException {
                     log.info("Running as node script");
-                    return evaluateGroovyScript(null, scriptContent, envVars);
+                    return evaluateGroovyScript(null, scriptContent, envVars, new PrintStream(toNodeOutput(remoteOutput, streaming), streaming), false);
                 }
             });
+            //Wait for the remaining output sent by the node before reading the markers
+            context.syncIO();
+            evaluated = true;
+            return result;
         } catch (IOException ioe) {
             log.info("Script execition failed: " + ioe.getClass().getName());
             ioe.printStackTrace(log.getListener().getLogger());
@@ -73,14 +148,19 @@ public class GroovyScriptTriggerExecutor extends ScriptTriggerExecutor {
             log.info("Script execition failed: " + ie.getClass().getName());
             ie.printStackTrace(log.getListener().getLogger());
             throw new ScriptTriggerException(ie);
+        } catch (PollSkippedException e) {
+            throw e;
         } catch (RuntimeException e) {
             log.info("Script execition failed: " + e.getClass().getName());
             e.printStackTrace(log.getListener().getLogger());
             throw e;
+        } finally {
+            closeOutputSink(sink, !evaluated);
+            record(PollPhase.EVALUATION, evaluationStart);
         }
     }
 
-    private boolean evaluateGroovyScript(final AbstractProject proj, final String scriptContent, final Map<String, String> envVars) {
+    private boolean evaluateGroovyScript(final AbstractProject proj, final String scriptContent, final Map<String, String> envVars, PrintStream out, boolean sandboxed) {
         if (envVars != null) {
             final StringBuilder envDebug = new StringBuilder("Replacing script vars using:");
             for (final Map.Entry<String, String> envEntry : envVars.entrySet()) {
@@ -102,23 +182,66 @@ public class GroovyScriptTriggerExecutor extends ScriptTriggerExecutor {
         log.info(groovyExpressionResolved);
         log.info("----------------------------------------\n");
 
-        final ClassLoader cl = getClassLoader();
-
-        GroovyShell shell = new GroovyShell(cl);
+        if (staticCompile) {
+            log.info("Compiling statically");
+        }
+        if (sandboxed) {
+            log.info("Running in the sandbox");
+        }
+        GroovyScriptCache.CompiledScript script = getScript(groovyExpressionResolved, sandboxed);
 
-        shell.setVariable("log", log);
-        shell.setVariable("out", log.getListener().getLogger());
+        Binding binding = new Binding();
+        binding.setVariable("log", log);
+        binding.setVariable("out", out);
         if (proj != null) {
-            shell.setVariable("project", proj);
+            binding.setVariable("project", proj);
         }
 
         //Evaluate the new script content
-        Object result = shell.evaluate(groovyExpressionResolved);
+        Object result;
+        try {
+            result = script.run(binding);
+        } catch (RejectedAccessException rae) {
+            //Lists the signature in the script approvals, so an administrator can approve it
+            ScriptApproval.get().accessRejected(rae, ApprovalContext.create());
+            log.info(rae.getMessage() + ". An administrator can approve the signature in the In-process Script Approval page.");
+            throw rae;
+        } finally {
+            out.flush();
+        }
         //Return the evaluated result
         return Boolean.valueOf(String.valueOf(result));
     }
 
-    private String processPath(String content) {
+    private GroovyScriptCache.CompiledScript getScript(String groovyExpressionResolved, boolean sandboxed) {
+        return GroovyScriptCache.getInstance().getScript(groovyExpressionResolved, staticCompile, sandboxed, getClassLoader());
+    }
+
+    /**
+     * Compiles a system script as an evaluation without environment variables would,
+     * so the next evaluation finds the compiled class in the {@link GroovyScriptCache}.
+     *
+     * @throws RuntimeException the compilation failure, also kept by the cache
+     */
+    public void precompileGroovySystemScript(String scriptContent) {
+        getScript(processPath(scriptContent), sandbox);
+    }
+
+    /**
+     * Compiles a system script file, see {@link #precompileGroovySystemScript(String)}.
+     *
+     * @return false if the file doesn't exist
+     */
+    public boolean precompileGroovySystemScriptFile(String scriptFilePath) throws IOException {
+        String scriptContent = GroovyScriptFileCache.getInstance().getContent(new File(scriptFilePath), ScriptTriggerConfiguration.getSystemScriptFileCharset());
+        if (scriptContent == null) {
+            return false;
+        }
+        precompileGroovySystemScript(scriptContent);
+        return true;
+    }
+
+    public static String processPath(String content) {
         if (content == null) {
             return null;
         }
@@ -149,30 +272,29 @@ public class GroovyScriptTriggerExecutor extends ScriptTriggerExecutor {
     }
 
     public boolean evaluateGroovyScriptFilePath(Node executingNode, AbstractProject proj, String scriptFilePath, Map<String, String> envVars, boolean groovySystemScript) throws ScriptTriggerException {
+        return evaluateGroovyScriptFilePath(getContext(executingNode, groovySystemScript), proj, scriptFilePath, envVars, groovySystemScript);
+    }
+
+    public boolean evaluateGroovyScriptFilePath(NodeExecutionContext context, AbstractProject proj, String scriptFilePath, Map<String, String> envVars, boolean groovySystemScript) throws ScriptTriggerException {
 
         if (scriptFilePath == null) {
             throw new NullPointerException("The scriptFilePath object must be set.");
         }
 
         final String scriptContent;
+        long transferStart = System.nanoTime();
         if (groovySystemScript) {
             String expandedScriptFile = Util.replaceMacro(scriptFilePath, envVars);
 
             final File file = new File(expandedScriptFile);
             final String scriptPath = file.getAbsolutePath();
 
-            if (!file.exists()) {
-                log.info(String.format("Can't load the file '%s'. It doesn't exist.", scriptPath));
-                return false;
-            }
-
             log.info("Reading script from: " + file.getAbsolutePath());
             try {
-                final FileInputStream fis = new FileInputStream(file);
-                try {
-                    scriptContent = IOUtils.toString(fis);
-                } finally {
-                    fis.close();
+                scriptContent = GroovyScriptFileCache.getInstance().getContent(file, ScriptTriggerConfiguration.getSystemScriptFileCharset());
+                if (scriptContent == null) {
+                    log.info(String.format("Can't load the file '%s'. It doesn't exist.", scriptPath));
+                    return false;
                 }
                 log.info("Read " + scriptContent.length() + " character long script from: " + scriptPath);
             } catch (IOException e) {
@@ -182,14 +304,19 @@ public class GroovyScriptTriggerExecutor extends ScriptTriggerExecutor {
                 throw new RuntimeException(msg, e);
             }
         } else {
-            if (!existsScript(executingNode, scriptFilePath)) {
+            if (!existsScript(context, scriptFilePath)) {
                 return false;
             }
 
-            scriptContent = getStringContent(executingNode, scriptFilePath);
+            scriptContent = getStringContent(context.getRootPath(), scriptFilePath);
         }
+        record(PollPhase.SCRIPT_TRANSFER, transferStart);
+
+        return evaluateGroovyScript(context, proj, scriptContent, envVars, groovySystemScript);
+    }
 
-        return evaluateGroovyScript(executingNode, proj, scriptContent, envVars, groovySystemScript);
+    private static NodeExecutionContext getContext(Node executingNode, boolean groovySystemScript) throws ScriptTriggerException {
+        return groovySystemScript ? NodeExecutionContext.of(executingNode) : NodeExecutionContext.require(executingNode);
     }
 
 }
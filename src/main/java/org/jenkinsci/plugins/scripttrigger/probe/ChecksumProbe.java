@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Checks whether the checksum of a file has changed since the previous polling, like comparing 'md5sum' outputs.
+ * The file is digested as a stream, it is never loaded in memory.
+ */
+public class ChecksumProbe extends Probe {
+
+    private static final String[] ALGORITHMS = {"MD5", "SHA-1", "SHA-256"};
+
+    private final String path;
+
+    private final String algorithm;
+
+    @DataBoundConstructor
+    public ChecksumProbe(String path, String algorithm) {
+        this.path = Util.fixEmptyAndTrim(path);
+        this.algorithm = algorithm == null ? "MD5" : algorithm;
+    }
+
+    @SuppressWarnings("unused")
+    public String getPath() {
+        return path;
+    }
+
+    @SuppressWarnings("unused")
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public ProbeResult check(String previousState) throws IOException {
+        if (path == null) {
+            return new ProbeResult(false, "No file path is configured.", previousState);
+        }
+        File file = new File(path);
+        String checksum = file.exists() ? digest(file) : "";
+        String message = file.exists() ? String.format("The %s checksum of '%s' is %s.", algorithm, path, checksum) : String.format("The file '%s' doesn't exist.", path);
+        if (previousState == null) {
+            return new ProbeResult(false, message, checksum);
+        }
+        boolean changed = !checksum.equals(previousState);
+        if (changed) {
+            message = String.format("The %s checksum of '%s' has changed.", algorithm, path);
+        }
+        return new ProbeResult(changed, message, checksum);
+    }
+
+    private String digest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IOException("Unsupported checksum algorithm " + algorithm);
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ProbeDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "File checksum";
+        }
+
+        public FormValidation doCheckPath(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) == null ? FormValidation.error("The path is mandatory.") : FormValidation.ok();
+        }
+
+        public ListBoxModel doFillAlgorithmItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (String algorithm : ALGORITHMS) {
+                items.add(algorithm);
+            }
+            return items;
+        }
+    }
+}
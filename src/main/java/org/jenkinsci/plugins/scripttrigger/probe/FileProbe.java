@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.File;
+
+/**
+ * Checks the existence or the modification of a file, like 'test -f'.
+ */
+public class FileProbe extends Probe {
+
+    public enum Condition {
+        EXISTS("The file exists"),
+        MISSING("The file doesn't exist"),
+        MODIFIED("The file has been created, modified or deleted");
+
+        private final String displayName;
+
+        Condition(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final String path;
+
+    private final Condition condition;
+
+    @DataBoundConstructor
+    public FileProbe(String path, String condition) {
+        this.path = Util.fixEmptyAndTrim(path);
+        this.condition = condition == null ? Condition.EXISTS : Condition.valueOf(condition);
+    }
+
+    @SuppressWarnings("unused")
+    public String getPath() {
+        return path;
+    }
+
+    @SuppressWarnings("unused")
+    public String getCondition() {
+        return condition.name();
+    }
+
+    @Override
+    public ProbeResult check(String previousState) {
+        if (path == null) {
+            return new ProbeResult(false, "No file path is configured.", previousState);
+        }
+        File file = new File(path);
+        boolean exists = file.exists();
+        switch (condition) {
+            case EXISTS:
+                return new ProbeResult(exists, String.format(exists ? "The file '%s' exists." : "The file '%s' doesn't exist.", path), null);
+            case MISSING:
+                return new ProbeResult(!exists, String.format(exists ? "The file '%s' exists." : "The file '%s' doesn't exist.", path), null);
+            default:
+                String state = exists ? file.lastModified() + ":" + file.length() : "";
+                if (previousState == null) {
+                    return new ProbeResult(false, String.format("Recording the state of the file '%s'.", path), state);
+                }
+                boolean modified = !state.equals(previousState);
+                return new ProbeResult(modified, String.format(modified ? "The file '%s' has changed." : "The file '%s' hasn't changed.", path), state);
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ProbeDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "File";
+        }
+
+        public FormValidation doCheckPath(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) == null ? FormValidation.error("The path is mandatory.") : FormValidation.ok();
+        }
+
+        public ListBoxModel doFillConditionItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (Condition condition : Condition.values()) {
+                items.add(condition.getDisplayName(), condition.name());
+            }
+            return items;
+        }
+    }
+}
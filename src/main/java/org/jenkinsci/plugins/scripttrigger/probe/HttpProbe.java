@@ -0,0 +1,233 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the availability or the modification of a HTTP resource, like 'curl -sf -o /dev/null'.
+ * <p/>
+ * The modification is checked with conditional requests: the ETag and Last-Modified validators of the previous
+ * response are sent back, and a '304 Not Modified' response is not a modification. The body of a resource
+ * without validators is digested as a stream instead. The response bodies are always read to their end,
+ * so the JVM keeps the connections alive and reuses them for the next pollings.
+ */
+public class HttpProbe extends Probe {
+
+    private static final int DEFAULT_TIMEOUT = 30;
+
+    public enum Condition {
+        AVAILABLE("The resource is available"),
+        MODIFIED("The resource has been modified");
+
+        private final String displayName;
+
+        Condition(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final String url;
+
+    private final Condition condition;
+
+    private final int timeout;
+
+    @DataBoundConstructor
+    public HttpProbe(String url, String condition, int timeout) {
+        this.url = Util.fixEmptyAndTrim(url);
+        this.condition = condition == null ? Condition.AVAILABLE : Condition.valueOf(condition);
+        this.timeout = timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+    }
+
+    @SuppressWarnings("unused")
+    public String getUrl() {
+        return url;
+    }
+
+    @SuppressWarnings("unused")
+    public String getCondition() {
+        return condition.name();
+    }
+
+    /**
+     * @return the connection and read timeout in seconds
+     */
+    @SuppressWarnings("unused")
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public ProbeResult check(String previousState) throws IOException {
+        if (url == null) {
+            throw new IOException("The URL of the HTTP probe is not set.");
+        }
+        URL resource = new URL(url);
+        if (!isHttp(resource)) {
+            throw new IOException(String.format("The URL '%s' is not a HTTP or HTTPS URL.", url));
+        }
+        HttpURLConnection connection = (HttpURLConnection) resource.openConnection();
+        connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+        connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+        connection.setUseCaches(false);
+        if (condition == Condition.MODIFIED && previousState != null) {
+            String[] validators = previousState.split("\n", -1);
+            if (validators[0].length() > 0) {
+                connection.setRequestProperty("If-None-Match", validators[0]);
+            }
+            if (validators.length > 1 && validators[1].length() > 0) {
+                connection.setRequestProperty("If-Modified-Since", validators[1]);
+            }
+        }
+
+        int responseCode;
+        try {
+            responseCode = connection.getResponseCode();
+        } catch (IOException ioe) {
+            return new ProbeResult(false, String.format("The URL '%s' is not reachable: %s", url, ioe.getMessage()), previousState);
+        }
+
+        if (condition == Condition.AVAILABLE) {
+            consume(connection, null);
+            boolean available = responseCode < 400;
+            return new ProbeResult(available, String.format("The URL '%s' responded %d.", url, responseCode), null);
+        }
+
+        if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            consume(connection, null);
+            return new ProbeResult(false, String.format("The URL '%s' hasn't been modified.", url), previousState);
+        }
+        if (responseCode >= 400) {
+            consume(connection, null);
+            return new ProbeResult(false, String.format("The URL '%s' responded %d.", url, responseCode), previousState);
+        }
+
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        String state;
+        if (etag == null && lastModified == null) {
+            state = "\n\n" + consume(connection, newDigest());
+        } else {
+            consume(connection, null);
+            state = Util.fixNull(etag) + "\n" + Util.fixNull(lastModified) + "\n";
+        }
+        if (previousState == null) {
+            return new ProbeResult(false, String.format("Recording the state of the URL '%s'.", url), state);
+        }
+        boolean modified = !state.equals(previousState);
+        return new ProbeResult(modified, String.format(modified ? "The URL '%s' has been modified." : "The URL '%s' hasn't been modified.", url), state);
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equals(url.getProtocol()) || "https".equals(url.getProtocol());
+    }
+
+    /**
+     * Reads the response body to its end, so the connection can be reused.
+     *
+     * @return the hexadecimal digest of the body if a digest is given
+     */
+    private static String consume(HttpURLConnection connection, MessageDigest digest) throws IOException {
+        InputStream in;
+        try {
+            in = connection.getInputStream();
+        } catch (IOException ioe) {
+            in = connection.getErrorStream();
+        }
+        if (in == null) {
+            return "";
+        }
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (digest != null) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return digest != null ? Util.toHexString(digest.digest()) : "";
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IOException(nsae.getMessage());
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ProbeDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "HTTP resource";
+        }
+
+        public FormValidation doCheckUrl(@QueryParameter String value) {
+            value = Util.fixEmptyAndTrim(value);
+            if (value == null) {
+                return FormValidation.error("The URL is mandatory.");
+            }
+            try {
+                if (!isHttp(new URL(value))) {
+                    return FormValidation.error("The URL must be a HTTP or HTTPS URL.");
+                }
+                return FormValidation.ok();
+            } catch (MalformedURLException mue) {
+                return FormValidation.error(mue.getMessage());
+            }
+        }
+
+        public ListBoxModel doFillConditionItems() {
+            ListBoxModel items = new ListBoxModel();
+            for (Condition condition : Condition.values()) {
+                items.add(condition.getDisplayName(), condition.name());
+            }
+            return items;
+        }
+    }
+}
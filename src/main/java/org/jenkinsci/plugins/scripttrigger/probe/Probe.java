@@ -0,0 +1,49 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.DescriptorExtensionList;
+import hudson.ExtensionPoint;
+import hudson.model.AbstractDescribableImpl;
+import jenkins.model.Jenkins;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A condition checked inside the JVM of the polling node, without forking a script.
+ * The probes are sent to the node, so they must only hold serializable configuration.
+ */
+public abstract class Probe extends AbstractDescribableImpl<Probe> implements ExtensionPoint, Serializable {
+
+    /**
+     * Checks the condition on the polling node.
+     *
+     * @param previousState the state returned by the previous check of the probe, null for the first check
+     */
+    public abstract ProbeResult check(String previousState) throws IOException, InterruptedException;
+
+    public static DescriptorExtensionList<Probe, ProbeDescriptor> all() {
+        return Jenkins.getInstance().<Probe, ProbeDescriptor>getDescriptorList(Probe.class);
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import java.io.Serializable;
+
+/**
+ * The outcome of a {@link Probe} check.
+ */
+public class ProbeResult implements Serializable {
+
+    private final boolean met;
+
+    private final String message;
+
+    private final String state;
+
+    /**
+     * @param met     true if the condition is met and a build has to be scheduled
+     * @param message describes the check, used as the build cause when the condition is met
+     * @param state   given back to the next check of the probe, null if the probe is stateless
+     */
+    public ProbeResult(boolean met, String message, String state) {
+        this.met = met;
+        this.message = message;
+        this.state = state;
+    }
+
+    public boolean isMet() {
+        return met;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getState() {
+        return state;
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import antlr.ANTLRException;
+import hudson.Extension;
+import hudson.Util;
+import hudson.console.AnnotatedLargeText;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.Item;
+import hudson.model.Node;
+import hudson.remoting.Callable;
+import org.apache.commons.jelly.XMLOutput;
+import org.jenkinsci.lib.xtrigger.XTriggerDescriptor;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.scripttrigger.AbstractTrigger;
+import org.jenkinsci.plugins.scripttrigger.CircuitBreaker;
+import org.jenkinsci.plugins.scripttrigger.LabelRestrictionClass;
+import org.jenkinsci.plugins.scripttrigger.NodeExecutionContext;
+import org.jenkinsci.plugins.scripttrigger.PollPhase;
+import org.jenkinsci.plugins.scripttrigger.PollRecorder;
+import org.jenkinsci.plugins.scripttrigger.PollState;
+import org.jenkinsci.plugins.scripttrigger.ScriptTriggerException;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Polls with probes checked inside the JVM of the polling node: no script file, no process and
+ * a single remoting call per polling. A build is triggered when the condition of a probe is met.
+ */
+public class ProbeTrigger extends AbstractTrigger {
+
+    private static final String PROBE_STATE_PREFIX = "probe.";
+
+    private final List<Probe> probes;
+
+    @DataBoundConstructor
+    @SuppressWarnings("unused")
+    public ProbeTrigger(String cronTabSpec, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, List<Probe> probes) throws ANTLRException {
+        super(cronTabSpec, (labelRestriction == null) ? false : true, (labelRestriction == null) ? null : labelRestriction.getTriggerLabel(), enableConcurrentBuild);
+        this.probes = probes == null ? new ArrayList<Probe>() : new ArrayList<Probe>(probes);
+    }
+
+    @SuppressWarnings("unused")
+    public List<Probe> getProbes() {
+        return probes == null ? Collections.<Probe>emptyList() : Collections.unmodifiableList(probes);
+    }
+
+    @Override
+    public Collection<? extends Action> getProjectActions() {
+        ProbeTriggerAction action = new InternalProbeTriggerAction(getDescriptor().getDisplayName());
+        return Collections.singleton(action);
+    }
+
+    @Override
+    protected File getLogFile() {
+        return new File(job.getRootDir(), "probeTrigger-polling.log");
+    }
+
+    @Override
+    protected File getStateFile() {
+        return new File(job.getRootDir(), "probeTrigger-state.xml");
+    }
+
+    @Override
+    protected String getDefaultMessageCause() {
+        return "A probe condition is met";
+    }
+
+    @Override
+    protected boolean checkIfModified(Node pollingNode, XTriggerLog log, PollRecorder recorder) throws ScriptTriggerException {
+        List<Probe> probes = getProbes();
+        if (probes.isEmpty()) {
+            log.info("No probe is configured.");
+            return false;
+        }
+
+        NodeExecutionContext context = NodeExecutionContext.of(pollingNode);
+        if (context == null) {
+            log.info(String.format("The node '%s' is offline. Skipping the polling.", getNodeName(pollingNode)));
+            return false;
+        }
+
+        List<String> stateNames = getProbeStateNames(probes);
+        List<ProbeResult> results;
+        long evaluationStart = System.nanoTime();
+        try {
+            results = context.getRootPath().act(new CheckProbes(probes, getProbeStates(stateNames)));
+        } catch (IOException ioe) {
+            throw new ScriptTriggerException(ioe);
+        } catch (InterruptedException ie) {
+            throw new ScriptTriggerException(ie);
+        } finally {
+            recorder.record(PollPhase.EVALUATION, evaluationStart);
+        }
+
+        boolean met = false;
+        for (int i = 0; i < results.size(); i++) {
+            ProbeResult result = results.get(i);
+            log.info(result.getMessage());
+            getPollState().setValue(stateNames.get(i), result.getState());
+            if (result.isMet() && !met) {
+                met = true;
+                recordOutputMarkers(result.getMessage(), null);
+            }
+        }
+        getPollState().retainValues(PROBE_STATE_PREFIX, stateNames);
+        return met;
+    }
+
+    /**
+     * @return the names of the states of the given probes in the {@link PollState}, derived from their configuration
+     * so a state follows its probe when the probes are reordered and is dropped when the probe changes
+     */
+    private static List<String> getProbeStateNames(List<Probe> probes) {
+        List<String> names = new ArrayList<String>(probes.size());
+        for (Probe probe : probes) {
+            names.add(PROBE_STATE_PREFIX + PollState.keyOf(probe));
+        }
+        return names;
+    }
+
+    /**
+     * @return the states returned by the latest check of each probe, kept in the {@link PollState}
+     */
+    private ArrayList<String> getProbeStates(List<String> stateNames) {
+        PollState state = getPollState();
+        ArrayList<String> states = new ArrayList<String>(stateNames.size());
+        for (String name : stateNames) {
+            states.add(state.getValue(name));
+        }
+        return states;
+    }
+
+    /**
+     * Checks all the probes of a polling on the node.
+     */
+    private static final class CheckProbes implements Callable<ArrayList<ProbeResult>, IOException> {
+
+        private final ArrayList<Probe> probes;
+
+        private final ArrayList<String> states;
+
+        private CheckProbes(List<Probe> probes, ArrayList<String> states) {
+            this.probes = new ArrayList<Probe>(probes);
+            this.states = states;
+        }
+
+        public ArrayList<ProbeResult> call() throws IOException {
+            ArrayList<ProbeResult> results = new ArrayList<ProbeResult>(probes.size());
+            for (int i = 0; i < probes.size(); i++) {
+                try {
+                    results.add(probes.get(i).check(states.get(i)));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw (IOException) new InterruptedIOException().initCause(ie);
+                }
+            }
+            return results;
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class ProbeTriggerDescriptor extends XTriggerDescriptor {
+
+        @Override
+        public boolean isApplicable(Item item) {
+            return true;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "[ScriptTrigger] - Poll with probes";
+        }
+
+        @Override
+        public String getHelpFile() {
+            return "/plugin/scripttrigger/help-probe.html";
+        }
+
+        public List<ProbeDescriptor> getProbeDescriptors() {
+            return Probe.all();
+        }
+    }
+
+    public final class InternalProbeTriggerAction extends ProbeTriggerAction {
+
+        private transient String actionTitle;
+
+        public InternalProbeTriggerAction(String actionTitle) {
+            this.actionTitle = actionTitle;
+        }
+
+        @SuppressWarnings("unused")
+        public AbstractProject<?, ?> getOwner() {
+            return (AbstractProject) job;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "ProbeTrigger Log";
+        }
+
+        @Override
+        public String getUrlName() {
+            return "probeTriggerPollLog";
+        }
+
+        @Override
+        public String getIconFileName() {
+            return "clipboard.gif";
+        }
+
+        @SuppressWarnings("unused")
+        public String getLabel() {
+            return actionTitle;
+        }
+
+        @SuppressWarnings("unused")
+        public CircuitBreaker getCircuitBreaker() {
+            return ProbeTrigger.this.getCircuitBreaker();
+        }
+
+        @SuppressWarnings("unused")
+        public String getLog() throws IOException {
+            return Util.loadFile(getLogFile());
+        }
+
+        @SuppressWarnings("unused")
+        public void writeLogTo(XMLOutput out) throws IOException {
+            new AnnotatedLargeText<InternalProbeTriggerAction>(getLogFile(), Charset.defaultCharset(), true, this).writeHtmlTo(0, out.asWriter());
+        }
+    }
+}
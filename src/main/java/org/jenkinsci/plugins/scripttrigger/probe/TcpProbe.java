@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.util.FormValidation;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that a TCP port accepts connections, like 'nc -z'.
+ */
+public class TcpProbe extends Probe {
+
+    private static final int DEFAULT_TIMEOUT = 10;
+
+    private final String host;
+
+    private final int port;
+
+    private final int timeout;
+
+    @DataBoundConstructor
+    public TcpProbe(String host, int port, int timeout) {
+        this.host = Util.fixEmptyAndTrim(host);
+        this.port = port;
+        this.timeout = timeout > 0 ? timeout : DEFAULT_TIMEOUT;
+    }
+
+    @SuppressWarnings("unused")
+    public String getHost() {
+        return host;
+    }
+
+    @SuppressWarnings("unused")
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return the connection timeout in seconds
+     */
+    @SuppressWarnings("unused")
+    public int getTimeout() {
+        return timeout;
+    }
+
+    @Override
+    public ProbeResult check(String previousState) {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), (int) TimeUnit.SECONDS.toMillis(timeout));
+            return new ProbeResult(true, String.format("The port %s:%d is open.", host, port), null);
+        } catch (IOException ioe) {
+            return new ProbeResult(false, String.format("The port %s:%d is closed: %s", host, port, ioe.getMessage()), null);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    @Extension
+    @SuppressWarnings("unused")
+    public static class DescriptorImpl extends ProbeDescriptor {
+
+        @Override
+        public String getDisplayName() {
+            return "TCP port";
+        }
+
+        public FormValidation doCheckHost(@QueryParameter String value) {
+            return Util.fixEmptyAndTrim(value) == null ? FormValidation.error("The host is mandatory.") : FormValidation.ok();
+        }
+
+        public FormValidation doCheckPort(@QueryParameter int value) {
+            return value > 0 && value < 65536 ? FormValidation.ok() : FormValidation.error("The port must be between 1 and 65535.");
+        }
+    }
+}
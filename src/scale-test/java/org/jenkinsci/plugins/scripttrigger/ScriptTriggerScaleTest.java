@@ -0,0 +1,192 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.model.FreeStyleProject;
+import hudson.slaves.DumbSlave;
+import hudson.triggers.Trigger;
+import net.sf.json.JSONObject;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.scripttrigger.groovy.GroovyScriptTrigger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls many jobs with script triggers on local agents for a fixed time, and reports the polling throughput and latencies
+ * and the controller resource usage in a JSON file.
+ */
+public class ScriptTriggerScaleTest {
+
+    private static final int JOBS = Integer.getInteger("scale.jobs", 200);
+
+    private static final int AGENTS = Integer.getInteger("scale.agents", 2);
+
+    private static final int DURATION_SECONDS = Integer.getInteger("scale.durationSeconds", 300);
+
+    private static final int POLL_INTERVAL_SECONDS = Integer.getInteger("scale.pollIntervalSeconds", 60);
+
+    private static final String OUTPUT = System.getProperty("scale.output", "target/scale-test/results.json");
+
+    //Never fired by the cron: the test schedules the polling itself
+    private static final String YEARLY_SPEC = "0 0 1 1 *";
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void pollManyJobs() throws Exception {
+        for (int i = 0; i < AGENTS; i++) {
+            DumbSlave agent = j.createSlave("scale-agent-" + i, "scale", null);
+            j.waitOnline(agent);
+        }
+
+        LabelRestrictionClass labelRestriction = new LabelRestrictionClass("scale");
+        List<Trigger<?>> triggers = new ArrayList<Trigger<?>>();
+        for (int i = 0; i < JOBS; i++) {
+            FreeStyleProject project = j.createFreeStyleProject("scale-" + i);
+            Trigger<?> trigger;
+            if (i % 2 == 0) {
+                trigger = new ScriptTrigger(YEARLY_SPEC, labelRestriction, false, "exit 1", null, "0", null, false);
+            } else {
+                trigger = new GroovyScriptTrigger(YEARLY_SPEC, labelRestriction, false, "return false", null, null, false);
+            }
+            project.addTrigger(trigger);
+            startTrigger(trigger, project);
+            triggers.add(trigger);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long heapBefore = usedHeap();
+        long metaspaceBefore = usedMetaspace();
+        int threadsBefore = threads.getThreadCount();
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        Random random = new Random(42);
+        long intervalMillis = TimeUnit.SECONDS.toMillis(POLL_INTERVAL_SECONDS);
+        for (final Trigger<?> trigger : triggers) {
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    trigger.run();
+                }
+            }, (long) (random.nextDouble() * intervalMillis), intervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DURATION_SECONDS));
+        scheduler.shutdownNow();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] buckets = null;
+        long[] bounds = null;
+        long polls = 0;
+        long errors = 0;
+        for (PollMetrics metrics : PollMetricsRegistry.getInstance().getAllJobMetrics()) {
+            PollHistogram total = metrics.getTotal();
+            long[] jobBuckets = total.getBuckets();
+            if (buckets == null) {
+                buckets = new long[jobBuckets.length];
+                bounds = total.getBucketBoundsMillis();
+            }
+            for (int i = 0; i < jobBuckets.length; i++) {
+                buckets[i] += jobBuckets[i];
+            }
+            polls += total.getCount();
+            errors += metrics.getErrors() + metrics.getTimeouts();
+        }
+
+        JSONObject results = new JSONObject();
+        results.put("jobs", JOBS);
+        results.put("agents", AGENTS);
+        results.put("durationSeconds", elapsedSeconds);
+        results.put("pollIntervalSeconds", POLL_INTERVAL_SECONDS);
+        results.put("polls", polls);
+        results.put("errors", errors);
+        results.put("throughputPerSecond", polls / elapsedSeconds);
+        results.put("latencyP50Millis", percentile(buckets, bounds, 0.50));
+        results.put("latencyP99Millis", percentile(buckets, bounds, 0.99));
+        results.put("heapGrowthBytes", usedHeap() - heapBefore);
+        results.put("metaspaceGrowthBytes", usedMetaspace() - metaspaceBefore);
+        results.put("threadsBefore", threadsBefore);
+        results.put("threadsAfter", threads.getThreadCount());
+        results.put("peakThreads", threads.getPeakThreadCount());
+
+        File output = new File(OUTPUT);
+        output.getParentFile().mkdirs();
+        FileUtils.writeStringToFile(output, results.toString(2), "UTF-8");
+        System.out.println(results.toString(2));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void startTrigger(Trigger trigger, FreeStyleProject project) {
+        trigger.start(project, true);
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the given percentile, -1 if the last unbounded bucket holds it
+     */
+    private static long percentile(long[] buckets, long[] bounds, double percentile) {
+        if (buckets == null) {
+            return 0;
+        }
+        long total = 0;
+        for (long count : buckets) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i < bounds.length ? bounds[i] : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedMetaspace() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ("Metaspace".equals(pool.getName()) || "PS Perm Gen".equals(pool.getName()) || "Perm Gen".equals(pool.getName())) {
+                return pool.getUsage().getUsed();
+            }
+        }
+        return -1;
+    }
+}
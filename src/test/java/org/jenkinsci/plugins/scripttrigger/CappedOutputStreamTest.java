@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CappedOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String output(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the output by chunks of various sizes, crossing the head and the tail.
+     */
+    private static void write(CappedOutputStream stream, String output) throws IOException {
+        byte[] bytes = output.getBytes("US-ASCII");
+        int off = 0;
+        int chunk = 1;
+        while (off < bytes.length) {
+            int len = Math.min(chunk, bytes.length - off);
+            if (len == 1) {
+                stream.write(bytes[off]);
+            } else {
+                stream.write(bytes, off, len);
+            }
+            off += len;
+            chunk = chunk % 7 + 1;
+        }
+    }
+
+    private static String readSpill(File file) throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(file));
+        try {
+            return IOUtils.toString(in, "US-ASCII");
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void anOutputUnderTheCapIsForwarded() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        File spillFile = new File(folder.getRoot(), "output.gz");
+        CappedOutputStream stream = new CappedOutputStream(log, 10, 5, spillFile, 1000);
+
+        write(stream, output(0, 15));
+        stream.close();
+
+        assertEquals(output(0, 15), log.toString("US-ASCII"));
+        assertEquals(0, stream.getOmittedBytes());
+        assertFalse(spillFile.exists());
+    }
+
+    @Test
+    public void theMiddleOfTheOutputIsSpilled() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        File spillFile = new File(folder.getRoot(), "output.gz");
+        CappedOutputStream stream = new CappedOutputStream(log, 10, 5, spillFile, 1000);
+
+        write(stream, output(0, 100));
+        stream.close();
+
+        String logged = log.toString("US-ASCII");
+        assertTrue(logged, logged.startsWith(output(0, 10)));
+        assertTrue(logged, logged.endsWith(output(95, 100)));
+        assertTrue(logged, logged.contains("85 bytes of output omitted, see '" + spillFile.getPath() + "'"));
+        assertEquals(85, stream.getOmittedBytes());
+        assertEquals(output(10, 95), readSpill(spillFile));
+    }
+
+    @Test
+    public void theTailBufferGrowsUpToTheTailSize() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        File spillFile = new File(folder.getRoot(), "output.gz");
+        CappedOutputStream stream = new CappedOutputStream(log, 10, 10000, spillFile, 100000);
+
+        write(stream, output(0, 30000));
+        stream.close();
+
+        String logged = log.toString("US-ASCII");
+        assertTrue(logged.startsWith(output(0, 10)));
+        assertTrue(logged.endsWith(output(20000, 30000)));
+        assertEquals(19990, stream.getOmittedBytes());
+        assertEquals(output(10, 20000), readSpill(spillFile));
+    }
+
+    @Test
+    public void theSpillIsCapped() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        File spillFile = new File(folder.getRoot(), "output.gz");
+        CappedOutputStream stream = new CappedOutputStream(log, 10, 5, spillFile, 20);
+
+        write(stream, output(0, 100));
+        stream.close();
+
+        assertTrue(log.toString("US-ASCII").contains("85 bytes of output omitted, the first 20 of them are in"));
+        assertEquals(output(10, 30), readSpill(spillFile));
+    }
+
+    @Test
+    public void withoutSpillFileTheMiddleIsDropped() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        CappedOutputStream stream = new CappedOutputStream(log, 10, 0, null, 1000);
+
+        write(stream, output(0, 100));
+        stream.close();
+
+        String logged = log.toString("US-ASCII");
+        assertTrue(logged, logged.startsWith(output(0, 10)));
+        assertTrue(logged, logged.contains("[... 90 bytes of output omitted ...]"));
+    }
+
+    @Test
+    public void theScriptsOfAPollingAppendToTheSpillFile() throws IOException {
+        File spillFile = new File(folder.getRoot(), "output.gz");
+        CappedOutputStream first = new CappedOutputStream(new ByteArrayOutputStream(), 10, 5, spillFile, 1000);
+        write(first, output(0, 50));
+        first.close();
+        CappedOutputStream second = new CappedOutputStream(new ByteArrayOutputStream(), 10, 5, spillFile, 1000);
+        write(second, output(0, 30));
+        second.close();
+
+        assertEquals(output(10, 45) + output(10, 25), readSpill(spillFile));
+    }
+
+    @Test(expected = IOException.class)
+    public void aClosedStreamRejectsWrites() throws IOException {
+        CappedOutputStream stream = new CappedOutputStream(new ByteArrayOutputStream(), 10, 5, null, 0);
+        stream.close();
+        stream.write('a');
+    }
+}
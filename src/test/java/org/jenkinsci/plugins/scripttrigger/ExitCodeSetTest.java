@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExitCodeSetTest {
+
+    @Test
+    public void theDefaultIsZero() {
+        assertSame(ExitCodeSet.DEFAULT, ExitCodeSet.parse(null));
+        assertSame(ExitCodeSet.DEFAULT, ExitCodeSet.parse("  "));
+        assertTrue(ExitCodeSet.DEFAULT.contains(0));
+        assertFalse(ExitCodeSet.DEFAULT.contains(1));
+        assertEquals("0", ExitCodeSet.DEFAULT.toString());
+    }
+
+    @Test
+    public void codesAndRanges() {
+        ExitCodeSet codes = ExitCodeSet.parse("0, 2,10 - 20");
+
+        assertTrue(codes.contains(0));
+        assertFalse(codes.contains(1));
+        assertTrue(codes.contains(2));
+        assertFalse(codes.contains(9));
+        assertTrue(codes.contains(10));
+        assertTrue(codes.contains(15));
+        assertTrue(codes.contains(20));
+        assertFalse(codes.contains(21));
+        assertEquals("0,2,10-20", codes.toString());
+    }
+
+    @Test
+    public void rangesAreSortedAndMerged() {
+        assertEquals("1-7,9", ExitCodeSet.parse("9,5-7,1-3,4,2").toString());
+        assertEquals("0-10", ExitCodeSet.parse("0-10,3-5").toString());
+        assertEquals("3", ExitCodeSet.parse("3,3").toString());
+    }
+
+    @Test
+    public void negativeCodes() {
+        ExitCodeSet codes = ExitCodeSet.parse("-5--1,-10");
+
+        assertTrue(codes.contains(-10));
+        assertFalse(codes.contains(-6));
+        assertTrue(codes.contains(-3));
+        assertFalse(codes.contains(0));
+        assertEquals("-10,-5--1", codes.toString());
+    }
+
+    @Test
+    public void theBoundsOfTheIntegersAreSupported() {
+        ExitCodeSet codes = ExitCodeSet.parse(Integer.MIN_VALUE + "-" + Integer.MAX_VALUE);
+
+        assertTrue(codes.contains(Integer.MIN_VALUE));
+        assertTrue(codes.contains(0));
+        assertTrue(codes.contains(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void malformedSpecificationsAreRejected() {
+        for (String spec : new String[]{"a", ",1", "1,,2", "1-", "1-2-3", "0x1", "5-1", "99999999999"}) {
+            try {
+                ExitCodeSet.parse(spec);
+                fail("'" + spec + "' is accepted");
+            } catch (IllegalArgumentException iae) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.jenkinsci.plugins.scripttrigger.LaunchRateLimiter.TokenBucket;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long NO_MAX = Long.MAX_VALUE;
+
+    @Test
+    public void noLimitWithoutRate() {
+        TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1000, bucket.availableAt(1000, 0, 1));
+            bucket.take(1000, 0, 1);
+        }
+    }
+
+    @Test
+    public void theBurstIsAdmittedWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.availableAt(0, 0.01, 5));
+            bucket.take(0, 0.01, 5);
+        }
+        assertTrue(bucket.availableAt(0, 0.01, 5) > 0);
+    }
+
+    @Test
+    public void theLaunchesBeyondTheBurstWaitForTheRate() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.take(0, 1, 2);
+        bucket.take(0, 1, 2);
+
+        long first = bucket.availableAt(0, 1, 2);
+        bucket.take(first, 1, 2);
+        long second = bucket.availableAt(0, 1, 2);
+        bucket.take(second, 1, 2);
+
+        assertEquals(SECOND, first);
+        assertEquals(2 * SECOND, second);
+    }
+
+    @Test
+    public void theBucketIsRefilledOverTime() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.take(0, 100, 1);
+        assertEquals(SECOND / 100, bucket.availableAt(0, 100, 1));
+
+        assertEquals(SECOND / 50, bucket.availableAt(SECOND / 50, 100, 1));
+    }
+
+    @Test
+    public void theRefillIsCappedByTheBurst() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.take(0, 20, 2);
+
+        long later = 10 * SECOND;
+        bucket.take(later, 20, 2);
+        bucket.take(later, 20, 2);
+
+        assertTrue(bucket.availableAt(later, 20, 2) > later);
+    }
+
+    @Test
+    public void theBurstIsAtLeastOne() {
+        TokenBucket bucket = new TokenBucket();
+        assertEquals(0, bucket.availableAt(0, 1, 0));
+        bucket.take(0, 1, 0);
+        assertEquals(SECOND, bucket.availableAt(0, 1, 0));
+    }
+
+    @Test
+    public void onlyTheBindingBucketDecidesTheWait() {
+        TokenBucket nodeBucket = new TokenBucket();
+        TokenBucket globalBucket = new TokenBucket();
+        assertEquals(0, LaunchRateLimiter.reserve(nodeBucket, 1, 1, globalBucket, 0.1, 10, NO_MAX));
+
+        long wait = LaunchRateLimiter.reserve(nodeBucket, 1, 1, globalBucket, 0.1, 10, NO_MAX);
+
+        assertTrue(String.valueOf(wait), wait > SECOND / 2 && wait <= SECOND);
+        //The global bucket still has 8 tokens and is not charged for the wait on the node bucket
+        long now = System.nanoTime();
+        assertTrue(globalBucket.availableAt(now, 0.1, 10) <= now);
+    }
+
+    @Test
+    public void aWaitBeyondTheMaximumIsRejectedWithoutTakingTokens() {
+        TokenBucket nodeBucket = new TokenBucket();
+        TokenBucket globalBucket = new TokenBucket();
+        assertEquals(0, LaunchRateLimiter.reserve(nodeBucket, 0.01, 1, globalBucket, 10, 5, SECOND));
+
+        assertEquals(-1, LaunchRateLimiter.reserve(nodeBucket, 0.01, 1, globalBucket, 10, 5, SECOND));
+        assertEquals(-1, LaunchRateLimiter.reserve(nodeBucket, 0.01, 1, globalBucket, 10, 5, SECOND));
+
+        long now = System.nanoTime();
+        assertTrue(nodeBucket.availableAt(now, 0.01, 1) - now <= 100 * SECOND);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(globalBucket.availableAt(now, 10, 5) <= now);
+            globalBucket.take(now, 10, 5);
+        }
+    }
+
+    @Test
+    public void theBucketsOfTheRemovedNodesAreDropped() {
+        LaunchRateLimiter limiter = LaunchRateLimiter.getInstance();
+        TokenBucket kept = limiter.getNodeBucket("kept");
+        TokenBucket removed = limiter.getNodeBucket("removed");
+
+        limiter.retainNodes(Collections.singleton("kept"));
+
+        assertSame(kept, limiter.getNodeBucket("kept"));
+        assertNotSame(removed, limiter.getNodeBucket("removed"));
+    }
+}
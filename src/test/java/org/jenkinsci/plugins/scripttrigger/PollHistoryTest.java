@@ -0,0 +1,201 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PollHistoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PollHistoryRecord record(long timestamp, String node, String cause) {
+        return new PollHistoryRecord(timestamp, node, 42, cause == null ? PollOutcome.NOT_TRIGGERED : PollOutcome.TRIGGERED, cause == null ? null : Integer.valueOf(0), cause);
+    }
+
+    /**
+     * @return the history of the job directory, as loaded after a restart
+     */
+    private static PollHistory reopen(File jobDir) {
+        PollHistory.forget(jobDir);
+        return PollHistory.of(jobDir);
+    }
+
+    @Test
+    public void appendAndReadRange() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "master", null), 0);
+        history.append(record(2000, "agent", "changed"), 0);
+        history.append(record(3000, "master", "changed"), 0);
+
+        List<PollHistoryRecord> records = reopen(jobDir).read(1500, 3000);
+
+        assertEquals(2, records.size());
+        PollHistoryRecord first = records.get(0);
+        assertEquals(2000, first.getTimestamp());
+        assertEquals("agent", first.getNodeName());
+        assertEquals(42, first.getDurationMillis());
+        assertEquals(PollOutcome.TRIGGERED, first.getOutcome());
+        assertEquals(Integer.valueOf(0), first.getExitCode());
+        assertEquals("changed", first.getCause());
+        assertEquals("master", records.get(1).getNodeName());
+        assertNull(reopen(jobDir).read(0, 1000).get(0).getCause());
+    }
+
+    @Test
+    public void stringsAreStoredOnce() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "master", "changed"), 0);
+        long length = new File(jobDir, "scriptTrigger-history/strings").length();
+
+        history.append(record(2000, "master", "changed"), 0);
+        reopen(jobDir).append(record(3000, "master", "changed"), 0);
+
+        assertEquals(length, new File(jobDir, "scriptTrigger-history/strings").length());
+    }
+
+    @Test
+    public void outOfOrderAppendsAreClamped() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(2000, "master", null), 0);
+        history.append(record(1000, "agent", null), 0);
+        history.append(record(3000, "master", null), 0);
+
+        List<PollHistoryRecord> records = history.read(2000, 2000);
+
+        assertEquals(2, records.size());
+        assertEquals("agent", records.get(1).getNodeName());
+        assertEquals(3, history.read(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void pruneRemovesTheOldRecords() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "old-agent", "old cause"), 0);
+        history.append(record(2000, "master", "changed"), 0);
+        history.append(record(3000, "master", null), 0);
+
+        history.prune(2000);
+        history.append(record(4000, "master", "changed"), 0);
+
+        List<PollHistoryRecord> records = reopen(jobDir).read(0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals(2000, records.get(0).getTimestamp());
+        assertEquals("changed", records.get(2).getCause());
+        String strings = FileUtils.readFileToString(new File(jobDir, "scriptTrigger-history/strings"), "UTF-8");
+        assertFalse(strings.contains("old-agent"));
+        assertFalse(new File(jobDir, "scriptTrigger-history/prune.commit").exists());
+    }
+
+    @Test
+    public void appendPrunesTheExpiredRecords() throws Exception {
+        File jobDir = folder.newFolder("job");
+        long day = 24 * 3600 * 1000L;
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(day, "master", null), 0);
+        history.append(record(10 * day, "master", null), 3 * day);
+
+        assertEquals(1, history.read(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void reopenAfterTruncatedWrites() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "master", "first"), 0);
+        history.append(record(2000, "master", "second"), 0);
+
+        //A crash while appending a record and its new cause
+        append(new File(jobDir, "scriptTrigger-history/records"), new byte[PollHistory.RECORD_SIZE / 2]);
+        append(new File(jobDir, "scriptTrigger-history/strings"), new byte[]{0, 0, 0, 100, 'x', 'y'});
+
+        history = reopen(jobDir);
+        assertEquals(2, history.read(0, Long.MAX_VALUE).size());
+        history.append(record(3000, "agent", "third"), 0);
+
+        List<PollHistoryRecord> records = reopen(jobDir).read(0, Long.MAX_VALUE);
+        assertEquals(3, records.size());
+        assertEquals("agent", records.get(2).getNodeName());
+        assertEquals("third", records.get(2).getCause());
+    }
+
+    @Test
+    public void reopenCompletesACommittedPrune() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "master", null), 0);
+        history.append(record(2000, "master", null), 0);
+        File prunedDir = folder.newFolder("pruned");
+        PollHistory.of(prunedDir).append(record(2000, "master", null), 0);
+
+        //A crash after the commit of a prune, once the records have been replaced
+        File directory = new File(jobDir, "scriptTrigger-history");
+        FileUtils.copyFile(new File(prunedDir, "scriptTrigger-history/records"), new File(directory, "records"));
+        FileUtils.copyFile(new File(prunedDir, "scriptTrigger-history/strings"), new File(directory, "strings.new"));
+        assertTrue(new File(directory, "prune.commit").createNewFile());
+
+        assertEquals(1, reopen(jobDir).read(0, Long.MAX_VALUE).size());
+        assertFalse(new File(directory, "strings.new").exists());
+        assertFalse(new File(directory, "prune.commit").exists());
+    }
+
+    @Test
+    public void reopenDropsAnUncommittedPrune() throws Exception {
+        File jobDir = folder.newFolder("job");
+        PollHistory history = PollHistory.of(jobDir);
+        history.append(record(1000, "master", null), 0);
+        history.append(record(2000, "master", null), 0);
+
+        File directory = new File(jobDir, "scriptTrigger-history");
+        FileUtils.writeStringToFile(new File(directory, "records.new"), "partial");
+
+        assertEquals(2, reopen(jobDir).read(0, Long.MAX_VALUE).size());
+        assertFalse(new File(directory, "records.new").exists());
+    }
+
+    private static void append(File file, byte[] bytes) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
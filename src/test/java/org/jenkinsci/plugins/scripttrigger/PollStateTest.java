@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.jenkinsci.plugins.scripttrigger.probe.FileProbe;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class PollStateTest {
+
+    @Test
+    public void keyOfDependsOnTheConfigurationOnly() {
+        assertEquals(PollState.keyOf(new FileProbe("/tmp/a", "EXISTS")), PollState.keyOf(new FileProbe("/tmp/a", "EXISTS")));
+        assertFalse(PollState.keyOf(new FileProbe("/tmp/a", "EXISTS")).equals(PollState.keyOf(new FileProbe("/tmp/b", "EXISTS"))));
+        assertFalse(PollState.keyOf(new FileProbe("/tmp/a", "EXISTS")).equals(PollState.keyOf(new FileProbe("/tmp/a", "MODIFIED"))));
+    }
+
+    @Test
+    public void retainValuesOnlyRemovesThePrefixedValues() {
+        PollState state = new PollState();
+        state.setValue("probe.kept", "1");
+        state.setValue("probe.removed", "2");
+        state.setValue("outputDigest", "3");
+
+        state.retainValues("probe.", Arrays.asList("probe.kept"));
+
+        assertEquals("1", state.getValue("probe.kept"));
+        assertNull(state.getValue("probe.removed"));
+        assertEquals("3", state.getValue("outputDigest"));
+    }
+}
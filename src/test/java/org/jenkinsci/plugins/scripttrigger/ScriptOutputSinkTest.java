@@ -0,0 +1,158 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptOutputSinkTest {
+
+    private static ScriptOutputSink sinkOf(String output) throws IOException {
+        ScriptOutputSink sink = new ScriptOutputSink(new ByteArrayOutputStream());
+        sink.write(output.getBytes("UTF-8"));
+        return sink;
+    }
+
+    @Test
+    public void forwardsTheOutput() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ScriptOutputSink sink = new ScriptOutputSink(out);
+        sink.write("line 1\nline 2".getBytes("UTF-8"));
+        sink.write('\n');
+
+        assertEquals("line 1\nline 2\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void parametersAreExtracted() throws IOException {
+        Map<String, String> parameters = sinkOf("building\n##param VERSION=1.2.3\n##param EMPTY=\n##param URL=http://host/?a=b\n").getParameters();
+
+        assertEquals(3, parameters.size());
+        assertEquals("1.2.3", parameters.get("VERSION"));
+        assertEquals("", parameters.get("EMPTY"));
+        assertEquals("http://host/?a=b", parameters.get("URL"));
+    }
+
+    @Test
+    public void theLastLineWithoutNewLineIsExtracted() throws IOException {
+        assertEquals("1", sinkOf("##param LAST=1").getParameters().get("LAST"));
+    }
+
+    @Test
+    public void carriageReturnsAreStripped() throws IOException {
+        Map<String, String> parameters = sinkOf("##param VERSION=1.2.3\r\n##param OTHER=x\r\n").getParameters();
+
+        assertEquals("1.2.3", parameters.get("VERSION"));
+        assertEquals("x", parameters.get("OTHER"));
+    }
+
+    @Test
+    public void truncatedParameterLinesAreIgnored() throws IOException {
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 9000; i++) {
+            longValue.append('\u00e9');
+        }
+        ScriptOutputSink sink = sinkOf("##param LONG=" + longValue + "\n##param SHORT=x\n##param LATER=" + longValue + "\n##param LATER=y\n");
+
+        Map<String, String> parameters = sink.getParameters();
+        assertFalse(parameters.containsKey("LONG"));
+        assertEquals("x", parameters.get("SHORT"));
+        assertEquals("y", parameters.get("LATER"));
+        assertEquals(Collections.singleton("LONG"), sink.getTruncatedParameters());
+    }
+
+    @Test
+    public void linesWithoutNameOrSeparatorAreIgnored() throws IOException {
+        Map<String, String> parameters = sinkOf("##param NOVALUE\n##param =value\n##param  =value\n##paramX=1\n ##param INDENTED=1\n").getParameters();
+
+        assertTrue(parameters.toString(), parameters.isEmpty());
+    }
+
+    @Test
+    public void theLatestValueOfARepeatedParameterWins() throws IOException {
+        Map<String, String> parameters = sinkOf("##param A=1\n##param B=2\n##param A=3\n").getParameters();
+
+        assertEquals(2, parameters.size());
+        assertEquals("3", parameters.get("A"));
+        assertEquals("2", parameters.get("B"));
+    }
+
+    @Test
+    public void theNumberOfParametersIsCapped() throws IOException {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 1500; i++) {
+            output.append("##param P").append(i).append('=').append(i).append('\n');
+        }
+        output.append("##param P0=updated\n");
+
+        Map<String, String> parameters = sinkOf(output.toString()).getParameters();
+
+        assertEquals(1000, parameters.size());
+        assertEquals("updated", parameters.get("P0"));
+        assertEquals("999", parameters.get("P999"));
+        assertFalse(parameters.containsKey("P1000"));
+    }
+
+    @Test
+    public void theFirstCauseAndTheLatestDescriptionWin() throws IOException {
+        ScriptOutputSink sink = sinkOf("<cause>first</cause>\n<description>old</description>\n<cause>second</cause>\n<description>new</description>\n");
+
+        assertEquals("first", sink.getCause());
+        assertEquals("new", sink.getDescription());
+    }
+
+    @Test
+    public void noMarker() throws IOException {
+        ScriptOutputSink sink = sinkOf("nothing to see\n");
+
+        assertNull(sink.getCause());
+        assertNull(sink.getDescription());
+        assertTrue(sink.getParameters().isEmpty());
+    }
+
+    @Test
+    public void theDigestIsTheDigestOfTheLatestResult() throws Exception {
+        byte[] digest = sinkOf("noise 1\n<result>v1</result>\nnoise\n<result>v2</result>\n").getDigest();
+
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest("v2".getBytes("UTF-8")), digest);
+        assertArrayEquals(digest, sinkOf("other noise\n<result>v2</result>\n").getDigest());
+    }
+
+    @Test
+    public void theDigestIsTheDigestOfTheOutputWithoutResult() throws Exception {
+        String output = "line 1\nline 2\n";
+
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(output.getBytes("UTF-8")), sinkOf(output).getDigest());
+    }
+}
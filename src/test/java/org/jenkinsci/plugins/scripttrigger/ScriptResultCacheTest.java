@@ -0,0 +1,154 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger;
+
+import hudson.util.StreamTaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScriptResultCacheTest {
+
+    private final ScriptResultCache cache = ScriptResultCache.getInstance();
+
+    /**
+     * The cache is shared by the whole JVM, each test uses its own keys.
+     */
+    private final String key = UUID.randomUUID().toString();
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private final XTriggerLog log = new XTriggerLog(new StreamTaskListener(output));
+
+    private static Callable<ScriptExecutionResult> counting(final AtomicInteger evaluations) {
+        return new Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() {
+                return new ScriptExecutionResult(evaluations.incrementAndGet(), new byte[0]);
+            }
+        };
+    }
+
+    @Test
+    public void aResultIsReusedDuringItsTimeToLive() {
+        AtomicInteger evaluations = new AtomicInteger();
+
+        ScriptExecutionResult first = cache.getResult(key, TimeUnit.HOURS.toMillis(1), counting(evaluations), log);
+        ScriptExecutionResult second = cache.getResult(key, TimeUnit.HOURS.toMillis(1), counting(evaluations), log);
+
+        assertSame(first, second);
+        assertEquals(1, evaluations.get());
+        assertTrue(output.toString().contains("Reusing the cached result of an identical script evaluation."));
+    }
+
+    @Test
+    public void anExpiredResultIsEvaluatedAgain() {
+        AtomicInteger evaluations = new AtomicInteger();
+
+        cache.getResult(key, 0, counting(evaluations), log);
+        ScriptExecutionResult second = cache.getResult(key, 0, counting(evaluations), log);
+
+        assertEquals(2, evaluations.get());
+        assertEquals(2, second.getExitCode());
+    }
+
+    @Test
+    public void theKeysAreIndependent() {
+        AtomicInteger evaluations = new AtomicInteger();
+
+        cache.getResult(key, TimeUnit.HOURS.toMillis(1), counting(evaluations), log);
+        cache.getResult(key + "-other", TimeUnit.HOURS.toMillis(1), counting(evaluations), log);
+
+        assertEquals(2, evaluations.get());
+    }
+
+    @Test
+    public void aFailureIsNotCached() {
+        AtomicInteger evaluations = new AtomicInteger();
+        try {
+            cache.getResult(key, TimeUnit.HOURS.toMillis(1), new Callable<ScriptExecutionResult>() {
+                public ScriptExecutionResult call() {
+                    throw new ScriptTriggerException("The script failed.");
+                }
+            }, log);
+            fail("The failure isn't propagated");
+        } catch (ScriptTriggerException ste) {
+            assertEquals("The script failed.", ste.getMessage());
+        }
+
+        cache.getResult(key, TimeUnit.HOURS.toMillis(1), counting(evaluations), log);
+
+        assertEquals(1, evaluations.get());
+    }
+
+    @Test
+    public void concurrentEvaluationsJoinTheOneInFlight() throws Exception {
+        final AtomicInteger evaluations = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<ScriptExecutionResult> blocking = new Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() throws Exception {
+                started.countDown();
+                release.await();
+                return new ScriptExecutionResult(evaluations.incrementAndGet(), new byte[0]);
+            }
+        };
+        Callable<ScriptExecutionResult> polling = new Callable<ScriptExecutionResult>() {
+            public ScriptExecutionResult call() {
+                return cache.getResult(key, TimeUnit.HOURS.toMillis(1), blocking, log);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ScriptExecutionResult> first = executor.submit(polling);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<ScriptExecutionResult> second = executor.submit(polling);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!output.toString().contains("Waiting for an identical script evaluation in progress.")) {
+                assertTrue("The second polling doesn't wait", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, evaluations.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
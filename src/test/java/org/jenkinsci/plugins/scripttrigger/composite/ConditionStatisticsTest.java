@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.composite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionStatisticsTest {
+
+    @Test
+    public void aConditionNeverEvaluatedIsEvaluatedFirst() {
+        assertEquals(0, new ConditionStatistics().getCost(true), 0);
+    }
+
+    @Test
+    public void theCostOfASkippedConditionDecreases() {
+        ConditionStatistics statistics = new ConditionStatistics();
+        statistics.record(1000000, true);
+        double cost = statistics.getCost(true);
+
+        statistics.recordSkipped();
+        assertTrue(statistics.getCost(true) < cost);
+
+        statistics.record(1000000, true);
+        assertEquals(0, statistics.getSkips());
+    }
+
+    @Test
+    public void aSkippedConditionEventuallyCostsLessThanACheaperOne() {
+        ConditionStatistics slow = new ConditionStatistics();
+        slow.record(50000000, false);
+        ConditionStatistics fast = new ConditionStatistics();
+        fast.record(1000000, true);
+
+        int pollings = 0;
+        while (slow.getCost(true) >= fast.getCost(true)) {
+            slow.recordSkipped();
+            pollings++;
+        }
+        assertTrue("Skipped during " + pollings + " pollings", pollings < 30);
+    }
+
+    @Test
+    public void theSelectivityFollowsTheRecentEvaluations() {
+        ConditionStatistics statistics = new ConditionStatistics();
+        for (int i = 0; i < 100; i++) {
+            statistics.record(1000000, false);
+        }
+        double notMetCost = statistics.getCost(true);
+        for (int i = 0; i < 20; i++) {
+            statistics.record(1000000, true);
+        }
+        assertTrue(statistics.getCost(true) < notMetCost / 5);
+    }
+
+    @Test
+    public void formatAndParse() {
+        ConditionStatistics statistics = new ConditionStatistics();
+        statistics.record(2000000, true);
+        statistics.record(4000000, false);
+        statistics.recordSkipped();
+
+        ConditionStatistics parsed = ConditionStatistics.parse(statistics.format());
+
+        assertEquals(statistics.getCost(true), parsed.getCost(true), 1);
+        assertEquals(statistics.getCost(false), parsed.getCost(false), 1);
+        assertEquals(1, parsed.getSkips());
+    }
+
+    @Test
+    public void invalidValuesAreIgnored() {
+        assertEquals(0, ConditionStatistics.parse(null).getCost(true), 0);
+        assertEquals(0, ConditionStatistics.parse("").getCost(true), 0);
+        assertEquals(0, ConditionStatistics.parse("1 2 3").getCost(true), 0);
+        assertEquals(0, ConditionStatistics.parse("a b c d").getCost(true), 0);
+        assertEquals(0, ConditionStatistics.parse("1000 1 2 0").getCost(true), 0);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroovyPollingExecutorTest {
+
+    @After
+    public void clearScheduledJob() {
+        GroovyPollingExecutor.setScheduledJob(null);
+    }
+
+    @Test
+    public void aReplacedWaitingPollingIsCancelled() throws Exception {
+        ExecutorService executor = GroovyPollingExecutor.get(4);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch lastRan = new CountDownLatch(1);
+
+        GroovyPollingExecutor.setScheduledJob("job");
+        assertTrue(GroovyPollingExecutor.isJobScheduled());
+        Future<?> first = executor.submit(new Runnable() {
+            public void run() {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        Future<?> replaced = executor.submit(new Runnable() {
+            public void run() {
+            }
+        });
+        Future<?> last = executor.submit(new Runnable() {
+            public void run() {
+                lastRan.countDown();
+            }
+        });
+
+        assertTrue(replaced.isCancelled());
+        assertFalse(last.isDone());
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        assertTrue(lastRan.await(10, TimeUnit.SECONDS));
+        last.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.groovy;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class GroovyScriptFileCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final GroovyScriptFileCache cache = GroovyScriptFileCache.getInstance();
+
+    private static void write(File file, String content, long lastModified) throws IOException {
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        file.setLastModified(lastModified);
+    }
+
+    @Test
+    public void aMissingFileHasNoContent() throws IOException {
+        assertNull(cache.getContent(new File(folder.getRoot(), "missing.groovy"), UTF_8));
+    }
+
+    @Test
+    public void anUnchangedFileIsReadOnce() throws IOException {
+        File file = folder.newFile("script.groovy");
+        write(file, "return true", System.currentTimeMillis() - 60000);
+
+        String content = cache.getContent(file, UTF_8);
+
+        assertEquals("return true", content);
+        assertSame(content, cache.getContent(file, UTF_8));
+    }
+
+    @Test
+    public void anEditKeepingTheSizeAndTheDateIsSeen() throws IOException {
+        File file = folder.newFile("script.groovy");
+        long lastModified = (System.currentTimeMillis() / 1000) * 1000;
+        write(file, "return true ", lastModified);
+        assertEquals("return true ", cache.getContent(file, UTF_8));
+
+        write(file, "return false", lastModified);
+
+        assertEquals("return false", cache.getContent(file, UTF_8));
+    }
+
+    @Test
+    public void aRecentlyModifiedFileKeepsItsContentInstance() throws IOException {
+        File file = folder.newFile("script.groovy");
+        write(file, "return true", System.currentTimeMillis());
+
+        String content = cache.getContent(file, UTF_8);
+
+        assertSame(content, cache.getContent(file, UTF_8));
+    }
+
+    @Test
+    public void theCharsetIsApplied() throws IOException {
+        File file = folder.newFile("script.groovy");
+        write(file, "'\u00e9'", System.currentTimeMillis() - 60000);
+
+        assertEquals("'\u00e9'", cache.getContent(file, UTF_8));
+        assertEquals("'\u00c3\u00a9'", cache.getContent(file, Charset.forName("ISO-8859-1")));
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import hudson.Util;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChecksumProbeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stateIsTheChecksumOfTheFile() throws Exception {
+        File file = folder.newFile("data");
+        FileUtils.writeStringToFile(file, "content", "UTF-8");
+
+        ProbeResult result = new ChecksumProbe(file.getPath(), "MD5").check(null);
+
+        assertFalse(result.isMet());
+        assertEquals(Util.getDigestOf("content"), result.getState());
+    }
+
+    @Test
+    public void metWhenTheContentChanges() throws Exception {
+        File file = folder.newFile("data");
+        FileUtils.writeStringToFile(file, "content", "UTF-8");
+        ChecksumProbe probe = new ChecksumProbe(file.getPath(), "SHA-256");
+
+        ProbeResult first = probe.check(null);
+        assertFalse(probe.check(first.getState()).isMet());
+
+        //Same size and same modification time, only the checksum tells the change
+        long lastModified = file.lastModified();
+        FileUtils.writeStringToFile(file, "CONTENT", "UTF-8");
+        assertTrue(file.setLastModified(lastModified));
+        ProbeResult changed = probe.check(first.getState());
+        assertTrue(changed.isMet());
+
+        assertTrue(file.delete());
+        ProbeResult deleted = probe.check(changed.getState());
+        assertTrue(deleted.isMet());
+        assertEquals("", deleted.getState());
+    }
+
+    @Test
+    public void notMetWithoutPath() throws Exception {
+        ProbeResult result = new ChecksumProbe(null, "MD5").check("state");
+        assertFalse(result.isMet());
+        assertEquals("No file path is configured.", result.getMessage());
+        assertEquals("state", result.getState());
+    }
+}
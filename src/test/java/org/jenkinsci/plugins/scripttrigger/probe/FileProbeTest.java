@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileProbeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void existsAndMissing() throws Exception {
+        File file = new File(folder.getRoot(), "marker");
+        FileProbe exists = new FileProbe(file.getPath(), "EXISTS");
+        FileProbe missing = new FileProbe(file.getPath(), "MISSING");
+
+        assertFalse(exists.check(null).isMet());
+        assertTrue(missing.check(null).isMet());
+
+        FileUtils.writeStringToFile(file, "content");
+        assertTrue(exists.check(null).isMet());
+        assertFalse(missing.check(null).isMet());
+    }
+
+    @Test
+    public void modifiedRecordsTheStateFirst() throws Exception {
+        File file = folder.newFile("data");
+        FileProbe probe = new FileProbe(file.getPath(), "MODIFIED");
+
+        ProbeResult first = probe.check(null);
+        assertFalse(first.isMet());
+        ProbeResult unchanged = probe.check(first.getState());
+        assertFalse(unchanged.isMet());
+
+        FileUtils.writeStringToFile(file, "more content");
+        ProbeResult modified = probe.check(unchanged.getState());
+        assertTrue(modified.isMet());
+
+        assertTrue(file.delete());
+        assertTrue(probe.check(modified.getState()).isMet());
+    }
+
+    @Test
+    public void notMetWithoutPath() throws Exception {
+        for (FileProbe.Condition condition : FileProbe.Condition.values()) {
+            ProbeResult result = new FileProbe("  ", condition.name()).check("state");
+            assertFalse(result.isMet());
+            assertEquals("No file path is configured.", result.getMessage());
+            assertEquals("state", result.getState());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Gregory Boissinot and all contributors
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.jenkinsci.plugins.scripttrigger.probe;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import hudson.util.FormValidation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpProbeTest {
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private HttpServer server;
+
+    /**
+     * The ETag of the '/etag' resource, null to send none.
+     */
+    private volatile String etag;
+
+    private volatile String body = "first";
+
+    private volatile int status = 200;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (etag != null) {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                }
+                if (etag != null && etag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] content = body.getBytes("UTF-8");
+                exchange.sendResponseHeaders(status, content.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/resource";
+    }
+
+    @Test
+    public void available() throws Exception {
+        HttpProbe probe = new HttpProbe(url(), "AVAILABLE", 5);
+        assertTrue(probe.check(null).isMet());
+
+        status = 404;
+        assertFalse(probe.check(null).isMet());
+    }
+
+    @Test
+    public void modifiedWithValidators() throws Exception {
+        etag = "\"v1\"";
+        HttpProbe probe = new HttpProbe(url(), "MODIFIED", 5);
+
+        ProbeResult first = probe.check(null);
+        assertFalse(first.isMet());
+        ProbeResult notModified = probe.check(first.getState());
+        assertFalse(notModified.isMet());
+        assertEquals(first.getState(), notModified.getState());
+
+        etag = "\"v2\"";
+        assertTrue(probe.check(notModified.getState()).isMet());
+    }
+
+    @Test
+    public void modifiedWithoutValidators() throws Exception {
+        HttpProbe probe = new HttpProbe(url(), "MODIFIED", 5);
+
+        ProbeResult first = probe.check(null);
+        assertFalse(probe.check(first.getState()).isMet());
+
+        body = "second";
+        assertTrue(probe.check(first.getState()).isMet());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherSchemes() throws Exception {
+        new HttpProbe("file:///etc/passwd", "AVAILABLE", 5).check(null);
+    }
+
+    @Test
+    public void validatesTheScheme() throws Exception {
+        HttpProbe.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(HttpProbe.DescriptorImpl.class);
+        assertEquals(FormValidation.Kind.OK, descriptor.doCheckUrl(url()).kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("ftp://127.0.0.1/resource").kind);
+        assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckUrl("file:///etc/passwd").kind);
+    }
+}